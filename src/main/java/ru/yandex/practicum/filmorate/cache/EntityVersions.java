@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Версии сущностей для ETag: сервисы увеличивают версию после каждой записи, контроллеры сравнивают
+ * If-None-Match с текущим тегом до обращения к хранилищу.
+ * Счётчики фильмов и пользователей лежат в фиксированном массиве и выбираются по хешу id, поэтому память
+ * не растёт с каталогом. Совпадение ячеек лишь иногда заставит клиента перезагрузить неизменившийся фильм:
+ * в теге есть id, так что чужая версия никогда не даст ложный 304.
+ * Общие счётчики нужны для изменений, которые задевают многих сразу: переименование жанра меняет все фильмы
+ * с этим жанром, удаление пользователя — лайки фильмов и чужие списки друзей.
+ * Эпоха процесса отделяет теги после перезапуска, когда счётчики начинаются заново.
+ */
+@Component
+public class EntityVersions {
+    private static final int SLOT_BITS = 16;
+
+    private final AtomicLongArray films = new AtomicLongArray(1 << SLOT_BITS);
+    private final AtomicLongArray users = new AtomicLongArray(1 << SLOT_BITS);
+    private final AtomicLong allFilms = new AtomicLong();
+    private final AtomicLong allUsers = new AtomicLong();
+    private final AtomicLong reference = new AtomicLong();
+    private volatile String epoch = newEpoch();
+
+    public void filmChanged(Long filmId) {
+        films.incrementAndGet(slot(filmId));
+    }
+
+    public void userChanged(Long userId) {
+        users.incrementAndGet(slot(userId));
+    }
+
+    public void userDeleted(Long userId) {
+        userChanged(userId);
+        allUsers.incrementAndGet();
+        allFilms.incrementAndGet();
+    }
+
+    public void referenceChanged() {
+        reference.incrementAndGet();
+        allFilms.incrementAndGet();
+    }
+
+    // Данные заменены целиком, например после генерации набора: все выданные теги устаревают
+    public void reset() {
+        epoch = newEpoch();
+    }
+
+    public String filmTag(Long filmId) {
+        return tag("f" + filmId, films.get(slot(filmId)) + "." + allFilms.get());
+    }
+
+    public String userTag(Long userId) {
+        return tag("u" + userId, users.get(slot(userId)) + "." + allUsers.get());
+    }
+
+    public String genresTag() {
+        return tag("g", reference.get());
+    }
+
+    public String genreTag(Long genreId) {
+        return tag("g" + genreId, reference.get());
+    }
+
+    public String mpaTag() {
+        return tag("m", reference.get());
+    }
+
+    public String mpaTag(Long mpaId) {
+        return tag("m" + mpaId, reference.get());
+    }
+
+    private String tag(String entity, Object version) {
+        return "\"" + entity + "-" + epoch + "-" + version + "\"";
+    }
+
+    private static int slot(Long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - SLOT_BITS));
+    }
+
+    private static String newEpoch() {
+        return Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Кэш фильмов по id с ограничением размера и времени жизни записей
+@Slf4j
+@Component
+public class FilmCache implements MeterBinder {
+    private final Cache<Long, Film> cache;
+    private final EntityVersions versions;
+
+    public FilmCache(EntityVersions versions,
+                     @Value("${filmorate.film-cache.max-size:1000}") long maxSize,
+                     @Value("${filmorate.film-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.versions = versions;
+    }
+
+    // Загрузка выполняется атомарно для ключа: параллельные запросы ждут один общий вызов loader
+    public Film get(Long id, Function<Long, Film> loader) {
+        return cache.get(id, loader);
+    }
+
+    /*
+     * Пакетная загрузка не блокирует ключи, как get, поэтому invalidate может пройти, пока loader читает базу,
+     * и без проверки в кэш вернулась бы старая копия. Сервисы меняют версию фильма до invalidate, так что теги
+     * снимаются до загрузки, а сверяются внутри compute по ключу, который упорядочен с invalidate того же ключа:
+     * изменившийся за время загрузки фильм отдаётся вызывающему, но в кэш не попадает.
+     */
+    public List<Film> getAll(Collection<Long> ids, Function<Collection<Long>, List<Film>> loader) {
+        Map<Long, Film> films = new HashMap<>(cache.getAllPresent(ids));
+        List<Long> missing = ids.stream()
+                .filter(id -> !films.containsKey(id))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            Map<Long, String> tags = missing.stream()
+                    .collect(Collectors.toMap(Function.identity(), versions::filmTag));
+            for (Film film : loader.apply(missing)) {
+                films.put(film.getId(), film);
+                cache.asMap().compute(film.getId(), (id, cached) ->
+                        tags.get(id).equals(versions.filmTag(id)) ? film : cached);
+            }
+        }
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "films");
+    }
+}
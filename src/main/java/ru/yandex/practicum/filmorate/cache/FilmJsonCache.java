@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Готовый JSON самых запрашиваемых фильмов: ответ пишется из байтов, Jackson работает один раз на версию фильма.
+ * Запись хранит тег EntityVersions, с которым была закодирована, и при несовпадении кодируется заново,
+ * поэтому отдельная инвалидация не нужна: любая запись, каскад или перезагрузка набора меняют тег.
+ * Тег снимается до загрузки, поэтому loader должен читать хранилище, а не другой кэш: только тогда
+ * тело не старше тега, с которым оно сохраняется.
+ * Ключ — id, а не тег: иначе новые версии горячих фильмов проигрывали бы при вытеснении старым, уже мёртвым.
+ * Достаточно больших фильмов (у популярных длинный список лайков) дополнительно хранится gzip-копия.
+ */
+@Component
+public class FilmJsonCache implements MeterBinder {
+    private final Cache<Long, Encoded> cache;
+    private final ObjectMapper objectMapper;
+    private final EntityVersions versions;
+    private final int gzipMinBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FilmJsonCache(ObjectMapper objectMapper, EntityVersions versions,
+                         @Value("${filmorate.film-json-cache.max-size:500}") long maxSize,
+                         @Value("${filmorate.film-json-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        this.objectMapper = objectMapper;
+        this.versions = versions;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    public Encoded get(Long id, String tag, Function<Long, Film> loader) {
+        Encoded cached = cache.getIfPresent(id);
+        if (cached != null && cached.tag().equals(tag)) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        return put(id, tag, loader.apply(id));
+    }
+
+    // JSON-массив из готовых фрагментов; недостающие фильмы загружаются одним вызовом loader, удалённые пропускаются
+    public byte[] getArray(List<Long> ids, Function<List<Long>, List<Film>> loader) {
+        byte[][] parts = new byte[ids.size()][];
+        String[] tags = new String[ids.size()];
+        Map<Long, Integer> missing = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            tags[i] = versions.filmTag(id);
+            Encoded cached = cache.getIfPresent(id);
+            if (cached != null && cached.tag().equals(tags[i])) {
+                hits.increment();
+                parts[i] = cached.json();
+            } else {
+                misses.increment();
+                missing.put(id, i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Film film : loader.apply(List.copyOf(missing.keySet()))) {
+                int i = missing.get(film.getId());
+                parts[i] = put(film.getId(), tags[i], film).json();
+            }
+        }
+        return concat(parts);
+    }
+
+    // Смена справочников задевает все фильмы сразу: мёртвые записи освобождаются, не дожидаясь вытеснения
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.film.json.cache", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("filmorate.film.json.cache", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("filmorate.film.json.cache.size", cache, Cache::estimatedSize)
+                .register(registry);
+    }
+
+    private Encoded put(Long id, String tag, Film film) {
+        Encoded encoded = encode(tag, film);
+        cache.put(id, encoded);
+        return encoded;
+    }
+
+    private Encoded encode(String tag, Film film) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(film);
+            return new Encoded(tag, json, json.length >= gzipMinBytes ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[][] parts) {
+        int length = 2;
+        int count = 0;
+        for (byte[] part : parts) {
+            if (part != null) {
+                length += part.length + (count++ > 0 ? 1 : 0);
+            }
+        }
+        byte[] array = new byte[length];
+        array[0] = '[';
+        int position = 1;
+        for (byte[] part : parts) {
+            if (part == null) {
+                continue;
+            }
+            if (position > 1) {
+                array[position++] = ',';
+            }
+            System.arraycopy(part, 0, array, position, part.length);
+            position += part.length;
+        }
+        array[position] = ']';
+        return array;
+    }
+
+    // gzip есть только у фильмов не меньше gzip-min-bytes: на коротком JSON сжатие почти ничего не даёт
+    public record Encoded(String tag, byte[] json, byte[] gzip) {
+    }
+}
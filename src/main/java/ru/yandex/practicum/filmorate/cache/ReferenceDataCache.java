@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.util.List;
+
+// Справочники жанров и рейтингов MPA, загруженные в память целиком
+@Slf4j
+@Component
+public class ReferenceDataCache {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = new Snapshot(List.of(), new Genre[0], List.of(), new MpaRating[0]);
+
+    public ReferenceDataCache(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        refresh();
+    }
+
+    // Возвращает true, если справочники изменились: только тогда нужно сбрасывать фильмы, в которые они встроены
+    public boolean refresh() {
+        List<Genre> genres = List.copyOf(jdbcTemplate.query("SELECT * FROM genres ORDER BY genre_id",
+                (rs, rowNum) -> new Genre(rs.getLong("genre_id"), rs.getString("genre_name"))));
+        List<MpaRating> ratings = List.copyOf(jdbcTemplate.query("SELECT * FROM mpa_ratings ORDER BY mpa_id",
+                (rs, rowNum) -> new MpaRating(rs.getLong("mpa_id"), rs.getString("mpa_name"),
+                        rs.getString("description"))));
+
+        // Списки отсортированы по id, поэтому размер массива определяется последним элементом
+        Genre[] genresById = new Genre[genres.isEmpty() ? 0 : arraySize(genres.get(genres.size() - 1).getId())];
+        genres.forEach(genre -> genresById[genre.getId().intValue()] = genre);
+        MpaRating[] mpaById = new MpaRating[ratings.isEmpty() ? 0 : arraySize(ratings.get(ratings.size() - 1).getId())];
+        ratings.forEach(mpa -> mpaById[mpa.getId().intValue()] = mpa);
+
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(genres, genresById, ratings, mpaById);
+        log.info("Справочники загружены: {} жанров, {} рейтингов MPA", genres.size(), ratings.size());
+        return !genres.equals(previous.genres()) || !ratings.equals(previous.ratings());
+    }
+
+    public List<Genre> getGenres() {
+        return snapshot.genres();
+    }
+
+    public Genre getGenre(Long id) {
+        Genre[] genresById = snapshot.genresById();
+        if (id == null || id < 0 || id >= genresById.length || genresById[id.intValue()] == null) {
+            throw new NotFoundException("Жанр с id " + id + " не найден");
+        }
+        return genresById[id.intValue()];
+    }
+
+    public List<MpaRating> getMpaRatings() {
+        return snapshot.ratings();
+    }
+
+    public MpaRating getMpaRating(Long id) {
+        MpaRating[] mpaById = snapshot.mpaById();
+        if (id == null || id < 0 || id >= mpaById.length || mpaById[id.intValue()] == null) {
+            throw new NotFoundException("MPA рейтинг с id " + id + " не найден");
+        }
+        return mpaById[id.intValue()];
+    }
+
+    private static int arraySize(Long maxId) {
+        return maxId.intValue() + 1;
+    }
+
+    private record Snapshot(List<Genre> genres, Genre[] genresById, List<MpaRating> ratings, MpaRating[] mpaById) {
+    }
+}
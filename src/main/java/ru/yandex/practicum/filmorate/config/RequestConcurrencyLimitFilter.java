@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Ограничивает число одновременно обрабатываемых запросов.
+ * С виртуальными потоками Tomcat больше не ограничивает параллелизм, и тысячи запросов встают в очередь пула
+ * соединений, причём запрос из нескольких SQL-выражений проходит эту очередь заново на каждом из них.
+ * Допуская не больше запросов, чем соединений в пуле, мы держим очередь здесь, один раз на запрос,
+ * а при долгом ожидании отвечаем 503 вместо того, чтобы копить задержку.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "filmorate.concurrency.max-in-flight")
+public class RequestConcurrencyLimitFilter extends OncePerRequestFilter {
+    private static final String OVERLOADED_BODY = "{\"error\":\"Сервер перегружен, повторите запрос позже\"}";
+
+    private final Semaphore permits;
+    private final Duration queueTimeout;
+
+    public RequestConcurrencyLimitFilter(@Value("${filmorate.concurrency.max-in-flight}") int maxInFlight,
+                                         @Value("${filmorate.concurrency.queue-timeout:2s}") Duration queueTimeout) {
+        this.permits = new Semaphore(maxInFlight, true);
+        this.queueTimeout = queueTimeout;
+        log.info("Ограничение параллельных запросов: {}, ожидание в очереди до {}", maxInFlight, queueTimeout);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            log.warn("Запрос {} {} отклонён: очередь ожидания переполнена", request.getMethod(),
+                    request.getRequestURI());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write(OVERLOADED_BODY);
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -1,13 +1,29 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.model.Completion;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResult;
+import ru.yandex.practicum.filmorate.service.FilmBatchService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Slf4j
@@ -15,11 +31,23 @@ import java.util.List;
 @RequestMapping("/films")
 public class FilmController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String DEFAULT_PAGE_LIMIT = "100";
+
     private final FilmService filmService;
+    private final FilmBatchService filmBatchService;
+    private final ObjectMapper objectMapper;
+    private final EntityVersions versions;
+    private final FilmJsonCache filmJsonCache;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, FilmBatchService filmBatchService, ObjectMapper objectMapper,
+                          EntityVersions versions, FilmJsonCache filmJsonCache) {
         this.filmService = filmService;
+        this.filmBatchService = filmBatchService;
+        this.objectMapper = objectMapper;
+        this.versions = versions;
+        this.filmJsonCache = filmJsonCache;
     }
 
     @PostMapping
@@ -28,22 +56,103 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    // Принимает JSON-массив или NDJSON-поток, фильмы читаются по одному без загрузки всего тела
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public FilmBatchResult createBatch(HttpServletRequest request) throws IOException {
+        log.info("Пакетная загрузка фильмов");
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(request.getInputStream())) {
+            return filmBatchService.createFilms(films);
+        }
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
         log.info("Обновление фильма: {}", film);
         return filmService.updateFilm(film);
     }
 
+    /*
+     * Постраничная выдача по id, курсор следующей страницы передаётся в заголовке X-Next-Cursor.
+     * С фильтрами или sort=popular — первые limit фильмов выборки и счётчики по жанрам и рейтингам:
+     * /films?genre=1,2&mpa=3&yearFrom=1990&yearTo=1999&sort=popular
+     */
     @GetMapping
-    public List<Film> getAll() {
-        log.info("Получение всех фильмов");
-        return filmService.getAllFilms();
+    public ResponseEntity<?> getAll(@RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) Integer limit,
+                                    @RequestParam(required = false) String after,
+                                    @RequestParam(defaultValue = "false") boolean all,
+                                    @RequestParam(required = false) List<Long> genre,
+                                    @RequestParam(required = false) List<Long> mpa,
+                                    @RequestParam(required = false) Integer yearFrom,
+                                    @RequestParam(required = false) Integer yearTo,
+                                    @RequestParam(required = false) String sort) {
+        if (all) {
+            log.info("Получение всех фильмов");
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+        if (genre != null || mpa != null || yearFrom != null || yearTo != null || sort != null) {
+            log.info("Фильтрация фильмов: genre {}, mpa {}, годы {}-{}, sort {}", genre, mpa, yearFrom, yearTo, sort);
+            return ResponseEntity.ok(filmService.filterFilms(genre, mpa, yearFrom, yearTo, sort, limit));
+        }
+        log.info("Получение страницы фильмов: limit {}, after {}", limit, after);
+        return PageResponses.toResponse(filmService.getFilmsPage(after, limit));
+    }
+
+    // Выгрузка всего каталога в NDJSON: фильмы пишутся в ответ порциями, без сборки полного списка
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        log.info("Потоковая выгрузка всех фильмов");
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            filmService.exportFilms(films -> {
+                try {
+                    for (Film film : films) {
+                        objectMapper.writeValue(generator, film);
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeRaw('\n');
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    // Поиск по словам названия и описания: фильмы, содержащие все слова запроса, лучшие первыми
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String q, @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Поиск фильмов по запросу: {}", q);
+        return filmService.searchFilms(q, limit);
+    }
+
+    // Подсказки названий при вводе: совпадение с началом любого слова, популярные первыми
+    @GetMapping("/typeahead")
+    public List<Completion> typeahead(@RequestParam String prefix, @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Подсказки названий фильмов по префиксу: {}", prefix);
+        return filmService.completeFilmTitles(prefix, limit);
     }
 
-    @GetMapping("/{id}")
-    public Film getById(@PathVariable Long id) {
+    // Тело пишется из готовых байтов FilmJsonCache, без сериализации на каждый запрос
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getById(@PathVariable Long id, WebRequest request) {
         log.info("Получение фильма с id: {}", id);
-        return filmService.getFilmById(id);
+        boolean acceptsGzip = ConditionalResponses.acceptsGzip(request);
+        String tag = versions.filmTag(id);
+        // Сжатое и несжатое представления — разные ответы, у них должны быть разные сильные теги
+        String etag = acceptsGzip ? ConditionalResponses.withEncoding(tag, "gzip") : tag;
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        FilmJsonCache.Encoded encoded = filmJsonCache.get(id, tag, filmService::loadFilm);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip && encoded.gzip() != null) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzip());
+        }
+        return response.body(encoded.json());
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -67,9 +176,10 @@ public class FilmController {
         return ResponseEntity.noContent().build();
     }
 
-    @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") Integer count) {
+    // Массив склеивается из готовых фрагментов фильмов
+    @GetMapping(value = "/popular", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getPopular(@RequestParam(defaultValue = "10") Integer count) {
         log.info("Получение {} самых популярных фильмов", count);
-        return filmService.getPopularFilms(count);
+        return filmJsonCache.getArray(filmService.getPopularFilmIds(count), filmService::loadFilmsByIds);
     }
 }
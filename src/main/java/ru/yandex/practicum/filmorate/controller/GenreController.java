@@ -2,10 +2,13 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -16,21 +19,23 @@ import java.util.List;
 @Slf4j
 public class GenreController {
     private final GenreService genreService;
+    private final EntityVersions versions;
 
     @Autowired
-    public GenreController(GenreService genreService) {
+    public GenreController(GenreService genreService, EntityVersions versions) {
         this.genreService = genreService;
+        this.versions = versions;
     }
 
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public ResponseEntity<List<Genre>> getAllGenres(WebRequest request) {
         log.info("Получение всех жанров");
-        return genreService.getAllGenres();
+        return ConditionalResponses.ifNoneMatch(request, versions.genresTag(), genreService::getAllGenres);
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable Long id) {
+    public ResponseEntity<Genre> getGenreById(@PathVariable Long id, WebRequest request) {
         log.info("Получение жанра с id: {}", id);
-        return genreService.getGenreById(id);
+        return ConditionalResponses.ifNoneMatch(request, versions.genreTag(id), () -> genreService.getGenreById(id));
     }
 }
@@ -2,10 +2,13 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -16,21 +19,23 @@ import java.util.List;
 @Slf4j
 public class MpaController {
     private final MpaService mpaService;
+    private final EntityVersions versions;
 
     @Autowired
-    public MpaController(MpaService mpaService) {
+    public MpaController(MpaService mpaService, EntityVersions versions) {
         this.mpaService = mpaService;
+        this.versions = versions;
     }
 
     @GetMapping
-    public List<MpaRating> getAllMpa() {
+    public ResponseEntity<List<MpaRating>> getAllMpa(WebRequest request) {
         log.info("Получение всех рейтингов MPA");
-        return mpaService.getAllMpaRatings();
+        return ConditionalResponses.ifNoneMatch(request, versions.mpaTag(), mpaService::getAllMpaRatings);
     }
 
     @GetMapping("/{id}")
-    public MpaRating getMpaById(@PathVariable Long id) {
+    public ResponseEntity<MpaRating> getMpaById(@PathVariable Long id, WebRequest request) {
         log.info("Получение MPA рейтинга с id: {}", id);
-        return mpaService.getMpaRatingById(id);
+        return ConditionalResponses.ifNoneMatch(request, versions.mpaTag(id), () -> mpaService.getMpaRatingById(id));
     }
 }
@@ -5,10 +5,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.model.Completion;
+import ru.yandex.practicum.filmorate.model.FilmRecommendation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
+import java.util.Map;
 
 
 @Slf4j
@@ -16,11 +23,17 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
 
+    private static final String DEFAULT_PAGE_LIMIT = "100";
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final EntityVersions versions;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, EntityVersions versions) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.versions = versions;
     }
 
     @PostMapping
@@ -35,16 +48,30 @@ public class UserController {
         return userService.updateUser(user);
     }
 
+    // Постраничная выдача по id, курсор следующей страницы передаётся в заголовке X-Next-Cursor
     @GetMapping
-    public List<User> getAll() {
-        log.info("Получение всех пользователей");
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAll(@RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) Integer limit,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            log.info("Получение всех пользователей");
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        log.info("Получение страницы пользователей: limit {}, after {}", limit, after);
+        return PageResponses.toResponse(userService.getUsersPage(after, limit));
+    }
+
+    // Подсказки логинов при вводе: /users/typeahead?prefix=ann
+    @GetMapping("/typeahead")
+    public List<Completion> typeahead(@RequestParam String prefix, @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Подсказки логинов по префиксу: {}", prefix);
+        return userService.completeLogins(prefix, limit);
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable Long id) {
+    public ResponseEntity<User> getById(@PathVariable Long id, WebRequest request) {
         log.info("Получение пользователя с id: {}", id);
-        return userService.getUserById(id);
+        return ConditionalResponses.ifNoneMatch(request, versions.userTag(id), () -> userService.getUserById(id));
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -64,6 +91,7 @@ public class UserController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
         log.info("Удаление пользователя с id: {}", id);
+        filmService.removeUserLikes(id);
         userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
@@ -74,6 +102,28 @@ public class UserController {
         return userService.getFriends(id);
     }
 
+    // Возможно, вы знакомы: друзья друзей по убыванию числа общих друзей
+    @GetMapping("/{id}/suggestions")
+    public List<FriendSuggestion> getSuggestions(@PathVariable Long id, @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Получение подсказок друзей для пользователя {}", id);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    // Фильмы, которые лайкали вместе с фильмами пользователя, по убыванию числа совместных лайков
+    @GetMapping("/{id}/recommendations")
+    public List<FilmRecommendation> getRecommendations(@PathVariable Long id,
+                                                       @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Получение рекомендаций фильмов для пользователя {}", id);
+        return filmService.getRecommendations(id, limit);
+    }
+
+    // Общие друзья сразу с несколькими пользователями: /users/1/friends/common?others=2,3,4
+    @GetMapping("/{id}/friends/common")
+    public Map<Long, List<User>> getCommonFriendsBatch(@PathVariable Long id, @RequestParam List<Long> others) {
+        log.info("Получение общих друзей пользователя {} с пользователями {}", id, others);
+        return userService.getMutualFriends(id, others);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId) {
         log.info("Получение общих друзей пользователей {} и {}", id, otherId);
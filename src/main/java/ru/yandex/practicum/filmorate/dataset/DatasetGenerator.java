@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Генератор синтетических данных: при одинаковом seed всегда даёт один и тот же набор
+@Slf4j
+public class DatasetGenerator {
+    public static final int FRIEND_CLUSTER = 200;
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final String[] WORDS = {
+        "Тёмный", "Последний", "Город", "Рыцарь", "Звезда", "Остров", "Дорога", "Ночь", "Зима", "Море",
+        "Lost", "Silent", "River", "Dream", "Shadow", "Empire", "Garden", "Storm", "Winter", "Journey"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void generate(int users, int films, int friends, int maxLikesPerFilm, long seed) {
+        Random random = new Random(seed);
+        long start = System.currentTimeMillis();
+
+        try (Batch batch = new Batch("INSERT INTO users (user_id, email, login, name, birthday) " +
+                "VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= users; i++) {
+                batch.add(i, "user" + i + "@mail.ru", "user" + i, word(random) + " " + i,
+                        Date.valueOf(LocalDate.of(1950 + random.nextInt(55), 1 + random.nextInt(12), 1)));
+            }
+        }
+
+        try (Batch filmBatch = new Batch("INSERT INTO films (film_id, title, description, release_date, duration, " +
+                "mpa_id, likes_count) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             Batch genreBatch = new Batch("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", filmBatch);
+             Batch likeBatch = new Batch("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmBatch)) {
+            for (int i = 1; i <= films; i++) {
+                // Степенное распределение: большинство фильмов почти без лайков, немногие собирают максимум
+                int likes = Math.min(users, (int) Math.floor(Math.pow(random.nextDouble(), 4) * maxLikesPerFilm));
+                String title = word(random) + " " + word(random) + " " + i;
+                filmBatch.add(i, title, "Описание фильма " + title,
+                        Date.valueOf(LocalDate.of(1930 + random.nextInt(95), 1 + random.nextInt(12), 1)),
+                        60 + random.nextInt(120), 1 + random.nextInt(MPA_RATINGS), likes);
+
+                int firstGenre = 1 + random.nextInt(GENRES);
+                genreBatch.add(i, firstGenre);
+                if (random.nextBoolean()) {
+                    genreBatch.add(i, firstGenre % GENRES + 1);
+                }
+
+                // Лайки ставит непрерывный отрезок пользователей, поэтому у соседей похожие вкусы
+                int firstUser = random.nextInt(Math.max(users, 1));
+                for (int k = 0; k < likes; k++) {
+                    likeBatch.add(i, (firstUser + k) % users + 1);
+                }
+            }
+        }
+
+        // Схема требует user_id < friend_id, поэтому друзья выбираются среди следующих по id соседей
+        try (Batch batch = new Batch("INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, ?)")) {
+            for (int i = 1; i < users; i++) {
+                int cluster = Math.min(FRIEND_CLUSTER, users - i);
+                boolean[] chosen = new boolean[cluster];
+                for (int k = 0; k < Math.min(friends, cluster); k++) {
+                    int offset = random.nextInt(cluster);
+                    while (chosen[offset]) {
+                        offset = (offset + 1) % cluster;
+                    }
+                    chosen[offset] = true;
+                    batch.add(i, i + offset + 1, "pending");
+                }
+            }
+        }
+
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (users + 1));
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + (films + 1));
+        log.info("Сгенерировано {} пользователей и {} фильмов за {} мс", users, films,
+                System.currentTimeMillis() - start);
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    // Копит строки и отправляет их пакетами фиксированного размера, родительские пакеты уходят первыми
+    private class Batch implements AutoCloseable {
+        private final String sql;
+        private final Batch[] parents;
+        private final List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+
+        Batch(String sql, Batch... parents) {
+            this.sql = sql;
+            this.parents = parents;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            for (Batch parent : parents) {
+                parent.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.service.LikeWriter;
+
+// Заполняет базу синтетическими данными при старте, если включено filmorate.dataset.generate
+@Slf4j
+@Profile("db")
+@Component
+@ConditionalOnProperty(name = "filmorate.dataset.generate", havingValue = "true")
+public class DatasetLoader implements ApplicationRunner {
+    private final JdbcTemplate jdbcTemplate;
+    private final PopularityLeaderboard leaderboard;
+    private final FriendGraph friendGraph;
+    private final CoLikeIndex coLikeIndex;
+    private final FilmSearchIndex searchIndex;
+    private final TypeaheadIndex typeahead;
+    private final FacetIndex facetIndex;
+    private final EntityVersions versions;
+    private final FilmCache filmCache;
+    private final LikeWriter likeWriter;
+    private final int users;
+    private final int films;
+    private final int friends;
+    private final int maxLikesPerFilm;
+    private final long seed;
+
+    public DatasetLoader(JdbcTemplate jdbcTemplate, PopularityLeaderboard leaderboard, FriendGraph friendGraph,
+                         CoLikeIndex coLikeIndex, FilmSearchIndex searchIndex, TypeaheadIndex typeahead,
+                         FacetIndex facetIndex, FilmCache filmCache, EntityVersions versions,
+                         LikeWriter likeWriter,
+                         @Value("${filmorate.dataset.users:100000}") int users,
+                         @Value("${filmorate.dataset.films:20000}") int films,
+                         @Value("${filmorate.dataset.friends:20}") int friends,
+                         @Value("${filmorate.dataset.max-likes-per-film:1000}") int maxLikesPerFilm,
+                         @Value("${filmorate.dataset.seed:42}") long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaderboard = leaderboard;
+        this.friendGraph = friendGraph;
+        this.coLikeIndex = coLikeIndex;
+        this.searchIndex = searchIndex;
+        this.typeahead = typeahead;
+        this.facetIndex = facetIndex;
+        this.versions = versions;
+        this.filmCache = filmCache;
+        this.likeWriter = likeWriter;
+        this.users = users;
+        this.films = films;
+        this.friends = friends;
+        this.maxLikesPerFilm = maxLikesPerFilm;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+        if (existing != null && existing > 0) {
+            log.warn("База уже содержит {} пользователей, генерация данных пропущена", existing);
+            return;
+        }
+
+        new DatasetGenerator(jdbcTemplate).generate(users, films, friends, maxLikesPerFilm, seed);
+        leaderboard.reload();
+        friendGraph.reload();
+        coLikeIndex.reload();
+        searchIndex.reload();
+        typeahead.reload();
+        facetIndex.reload();
+        likeWriter.reload();
+        versions.reset();
+        filmCache.invalidateAll();
+    }
+}
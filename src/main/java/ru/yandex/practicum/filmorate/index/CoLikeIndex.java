@@ -0,0 +1,252 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Рекомендации «кто лайкнул то же, что и вы, лайкнул ещё…» по совместным лайкам фильмов.
+ * Для каждого фильма хранится не больше neighbours-per-film соседей с числом общих лайкнувших.
+ * При загрузке соседи считаются точно, при лайках обновляются по схеме Space-Saving:
+ * новый сосед вытесняет самого слабого и наследует его счётчик, поэтому память на фильм ограничена.
+ * От пользователя учитываются только user-window фильмов с наибольшими id, так что ни лайк,
+ * ни запрос активного пользователя не стоят больше окна. Инкрементальные счётчики приближённые,
+ * периодическая перезагрузка возвращает их к точным; изменения, пришедшие во время перезагрузки, теряются до следующей.
+ */
+@Slf4j
+@Component
+public class CoLikeIndex {
+    private static final Comparator<Recommendation> WORST_FIRST = Comparator
+            .comparingInt(Recommendation::score)
+            .thenComparing(Recommendation::filmId, Comparator.reverseOrder());
+
+    private final FilmStorage filmStorage;
+    private final int neighboursPerFilm;
+    private final int userWindow;
+    private volatile State state = new State(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    public CoLikeIndex(FilmStorage filmStorage,
+                       @Value("${filmorate.recommendations.neighbours-per-film:100}") int neighboursPerFilm,
+                       @Value("${filmorate.recommendations.user-window:50}") int userWindow) {
+        this.filmStorage = filmStorage;
+        this.neighboursPerFilm = neighboursPerFilm;
+        this.userWindow = userWindow;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.rebuild-ms:3600000}",
+            initialDelayString = "${filmorate.recommendations.rebuild-ms:3600000}")
+    public synchronized void reload() {
+        long started = System.currentTimeMillis();
+        // Строки идут по возрастанию film_id, поэтому фильмы дописываются в конец IdSet пользователя
+        Map<Long, IdSet> likesByUser = new HashMap<>();
+        Map<Long, IdSet> likersByFilm = new HashMap<>();
+        filmStorage.forEachLike((filmId, userId) -> {
+            likesByUser.computeIfAbsent(userId, id -> new IdSet()).add(filmId);
+            likersByFilm.computeIfAbsent(filmId, id -> new IdSet()).add(userId);
+        });
+
+        Map<Long, long[]> windows = new HashMap<>();
+        likesByUser.forEach((userId, films) -> windows.put(userId, window(films.toLongArray())));
+
+        Map<Long, Neighbours> neighboursByFilm = new ConcurrentHashMap<>();
+        likersByFilm.forEach((filmId, likers) -> {
+            LongIntCounter counter = new LongIntCounter();
+            likers.forEachId(userId -> {
+                for (long otherId : windows.get(userId)) {
+                    if (otherId != filmId) {
+                        counter.add(otherId, 1);
+                    }
+                }
+            });
+            if (counter.size() > 0) {
+                neighboursByFilm.put(filmId, Neighbours.top(counter, neighboursPerFilm));
+            }
+        });
+
+        state = new State(new ConcurrentHashMap<>(likesByUser), neighboursByFilm);
+        log.info("Индекс рекомендаций загружен: {} пользователей, {} фильмов за {} мс",
+                likesByUser.size(), neighboursByFilm.size(), System.currentTimeMillis() - started);
+    }
+
+    public void addLike(Long filmId, Long userId) {
+        State current = state;
+        IdSet films = current.likesByUser.computeIfAbsent(userId, id -> new IdSet());
+        long[] window;
+        synchronized (films) {
+            if (!films.add(filmId)) {
+                return;
+            }
+            window = window(films.toLongArray());
+        }
+        update(current, filmId, window, 1);
+    }
+
+    public void removeLike(Long filmId, Long userId) {
+        State current = state;
+        IdSet films = current.likesByUser.get(userId);
+        if (films == null) {
+            return;
+        }
+        long[] window;
+        synchronized (films) {
+            if (!films.remove(filmId)) {
+                return;
+            }
+            window = window(films.toLongArray());
+        }
+        update(current, filmId, window, -1);
+    }
+
+    // Ссылки на удалённый фильм у соседей остаются до перезагрузки, при выдаче такие фильмы не находятся
+    public void removeFilm(Long filmId) {
+        state.neighboursByFilm.remove(filmId);
+    }
+
+    public List<Recommendation> recommend(Long userId, int limit) {
+        State current = state;
+        IdSet films = current.likesByUser.get(userId);
+        if (films == null) {
+            return List.of();
+        }
+        long[] liked;
+        synchronized (films) {
+            liked = films.toLongArray();
+        }
+
+        LongIntCounter scores = new LongIntCounter();
+        for (long filmId : window(liked)) {
+            Neighbours neighbours = current.neighboursByFilm.get(filmId);
+            if (neighbours == null) {
+                continue;
+            }
+            neighbours.forEach((otherId, count) -> {
+                if (Arrays.binarySearch(liked, otherId) < 0) {
+                    scores.add(otherId, count);
+                }
+            });
+        }
+
+        PriorityQueue<Recommendation> top = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        scores.forEach((filmId, score) -> {
+            top.add(new Recommendation(filmId, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<Recommendation> result = new ArrayList<>(top);
+        result.sort(WORST_FIRST.reversed());
+        return result;
+    }
+
+    private void update(State current, long filmId, long[] window, int delta) {
+        Neighbours own = current.neighbours(filmId, neighboursPerFilm);
+        for (long otherId : window) {
+            if (otherId != filmId) {
+                own.add(otherId, delta);
+                current.neighbours(otherId, neighboursPerFilm).add(filmId, delta);
+            }
+        }
+    }
+
+    private long[] window(long[] films) {
+        return films.length <= userWindow ? films : Arrays.copyOfRange(films, films.length - userWindow, films.length);
+    }
+
+    public record Recommendation(long filmId, int score) {
+    }
+
+    private record State(Map<Long, IdSet> likesByUser, Map<Long, Neighbours> neighboursByFilm) {
+        Neighbours neighbours(long filmId, int capacity) {
+            return neighboursByFilm.computeIfAbsent(filmId, id -> new Neighbours(capacity));
+        }
+    }
+
+    private static final class Neighbours {
+        private final int capacity;
+        private long[] ids;
+        private int[] counts;
+        private int size;
+
+        Neighbours(int capacity) {
+            this.capacity = capacity;
+            this.ids = new long[Math.min(capacity, 8)];
+            this.counts = new int[ids.length];
+        }
+
+        static Neighbours top(LongIntCounter counter, int capacity) {
+            List<long[]> entries = new ArrayList<>(counter.size());
+            counter.forEach((id, count) -> entries.add(new long[]{id, count}));
+            entries.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(a[0], b[0]));
+
+            Neighbours neighbours = new Neighbours(capacity);
+            int size = Math.min(capacity, entries.size());
+            neighbours.ids = new long[size];
+            neighbours.counts = new int[size];
+            for (int i = 0; i < size; i++) {
+                neighbours.ids[i] = entries.get(i)[0];
+                neighbours.counts[i] = (int) entries.get(i)[1];
+            }
+            neighbours.size = size;
+            return neighbours;
+        }
+
+        synchronized void add(long id, int delta) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    counts[i] += delta;
+                    if (counts[i] <= 0) {
+                        removeAt(i);
+                    }
+                    return;
+                }
+            }
+            if (delta <= 0) {
+                return;
+            }
+            if (size < capacity) {
+                if (size == ids.length) {
+                    int length = Math.min(capacity, Math.max(8, size * 2));
+                    ids = Arrays.copyOf(ids, length);
+                    counts = Arrays.copyOf(counts, length);
+                }
+                ids[size] = id;
+                counts[size++] = delta;
+                return;
+            }
+            int weakest = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[weakest]) {
+                    weakest = i;
+                }
+            }
+            ids[weakest] = id;
+            counts[weakest] += delta;
+        }
+
+        synchronized void forEach(LongIntCounter.Consumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(ids[i], counts[i]);
+            }
+        }
+
+        private void removeAt(int index) {
+            size--;
+            ids[index] = ids[size];
+            counts[index] = counts[size];
+        }
+    }
+}
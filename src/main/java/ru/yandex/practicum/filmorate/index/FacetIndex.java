@@ -0,0 +1,391 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Фильтрация каталога по жанрам, рейтингу MPA и годам выпуска на битовых масках по id фильма.
+ * На каждый жанр и рейтинг — своя маска; годы хранятся в диапазонном кодировании:
+ * маска года Y содержит все фильмы, вышедшие не позже Y, поэтому любой диапазон лет —
+ * это две маски (upTo(to) AND NOT upTo(from - 1)), сколько бы лет он ни охватывал.
+ * Внутри жанров и внутри рейтингов условия объединяются по ИЛИ, между ними — по И.
+ * Число фильмов по каждому жанру считается с учётом всех фильтров, кроме жанрового
+ * (и так же для рейтингов), чтобы было видно, сколько добавит ещё один выбранный жанр.
+ * Всё считается за один проход по словам масок; запрос идёт под общей блокировкой, изменение — под исключительной.
+ */
+@Slf4j
+@Component
+public class FacetIndex {
+    private static final int MIN_YEAR = 1895;
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int WALK_COST = 16;
+
+    private final FilmStorage filmStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+
+    public FacetIndex(FilmStorage filmStorage, PopularityLeaderboard leaderboard) {
+        this.filmStorage = filmStorage;
+        this.leaderboard = leaderboard;
+    }
+
+    // Изменения, пришедшие во время загрузки, теряются, поэтому вызывается только при старте и после генерации данных
+    @PostConstruct
+    public void reload() {
+        State loaded = new State();
+        filmStorage.streamAll(LOAD_BATCH_SIZE, films -> films.forEach(film -> loaded.put(film, film.getLikes().size())));
+        lock.writeLock().lock();
+        try {
+            state = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс фильтров загружен: {} фильмов, {} жанров, {} рейтингов",
+                loaded.size, loaded.genres.size(), loaded.mpa.size());
+    }
+
+    // Добавление и изменение: прежние жанр, рейтинг и год фильма сбрасываются
+    public void put(Film film, int likes) {
+        lock.writeLock().lock();
+        try {
+            state.put(film, likes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(Collection<Film> films) {
+        lock.writeLock().lock();
+        try {
+            films.forEach(film -> state.put(film, film.getLikes().size()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            state.remove(filmId.intValue());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Меняет только число в массиве, поэтому достаточно общей блокировки
+    public void updateLikes(Long filmId, int likes) {
+        lock.readLock().lock();
+        try {
+            state.setLikes(filmId.intValue(), likes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Пустой список жанров или рейтингов и null вместо года означают отсутствие фильтра.
+     * По умолчанию фильмы идут по возрастанию id, с popular — по убыванию лайков.
+     */
+    public Result filter(Collection<Long> genreIds, Collection<Long> mpaIds, Integer yearFrom, Integer yearTo,
+                         boolean popular, int limit) {
+        List<Long> filmIds;
+        int total;
+        Map<Long, Integer> genreCounts = new LinkedHashMap<>();
+        Map<Long, Integer> mpaCounts = new LinkedHashMap<>();
+
+        lock.readLock().lock();
+        try {
+            State current = state;
+            long[][] genreFilter = current.selected(current.genres, genreIds);
+            long[][] mpaFilter = current.selected(current.mpa, mpaIds);
+            long[] upToTo = yearTo == null ? null : current.upTo(yearTo);
+            long[] upToBefore = yearFrom == null ? null : current.upTo(yearFrom - 1);
+
+            // Сначала маски «годы и жанры» и «годы и рейтинги», затем счётчики — отдельными проходами,
+            // которые JIT разворачивает в popcnt без ветвлений
+            int used = current.usedWords;
+            long[] liveWords = current.live.words;
+            long[] byGenre = new long[used];
+            long[] byMpa = new long[used];
+            long[] matches = new long[used];
+            for (int w = 0; w < used; w++) {
+                long base = liveWords[w];
+                if (upToTo != null) {
+                    base &= upToTo[w];
+                }
+                if (upToBefore != null) {
+                    base &= ~upToBefore[w];
+                }
+                long genreBits = genreFilter == null ? base : base & union(genreFilter, w);
+                long mpaBits = mpaFilter == null ? base : base & union(mpaFilter, w);
+                byGenre[w] = genreBits;
+                byMpa[w] = mpaBits;
+                matches[w] = genreBits & mpaBits;
+            }
+            total = cardinality(matches);
+            for (Map.Entry<Long, Bitmap> genre : current.genres.entrySet()) {
+                putCount(genreCounts, genre.getKey(), intersectionCount(byMpa, genre.getValue().words));
+            }
+            for (Map.Entry<Long, Bitmap> rating : current.mpa.entrySet()) {
+                putCount(mpaCounts, rating.getKey(), intersectionCount(byGenre, rating.getValue().words));
+            }
+            filmIds = popular ? mostPopular(current, matches, total, limit) : first(matches, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Result(filmIds, total, genreCounts, mpaCounts);
+    }
+
+    /*
+     * Плотный результат выгоднее проверять, идя по рейтингу популярности сверху: до limit совпадений
+     * придётся просмотреть около limit * size / total записей, и каждая стоит примерно WALK_COST
+     * проверок кандидата по массиву лайков. Редкий результат дешевле отобрать целиком.
+     */
+    private List<Long> mostPopular(State current, long[] matches, int total, int limit) {
+        if (total == 0) {
+            return List.of();
+        }
+        if ((long) limit * current.size / total * WALK_COST < total) {
+            List<Long> top = new ArrayList<>(limit);
+            leaderboard.forEachRanked(filmId -> {
+                if (contains(matches, filmId) && !top.contains(filmId)) {
+                    top.add(filmId);
+                }
+                return top.size() < limit;
+            });
+            if (top.size() == Math.min(limit, total)) {
+                return top;
+            }
+        }
+
+        long[] ids = new long[Math.min(limit, total)];
+        int[] likes = new int[ids.length];
+        int[] size = new int[1];
+        for (int w = 0; w < matches.length; w++) {
+            long word = matches[w];
+            while (word != 0) {
+                long filmId = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                offer(ids, likes, size, filmId, current.likesByFilm[(int) filmId]);
+            }
+        }
+        List<Long> result = new ArrayList<>(size[0]);
+        for (int i = 0; i < size[0]; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    // Вставка в отсортированный массив из не больше чем limit элементов: лайки по убыванию, затем id
+    private static void offer(long[] ids, int[] likes, int[] size, long filmId, int filmLikes) {
+        int n = size[0];
+        if (n == ids.length && filmLikes <= likes[n - 1]) {
+            return;
+        }
+        int i = n < ids.length ? size[0]++ : n - 1;
+        while (i > 0 && filmLikes > likes[i - 1]) {
+            ids[i] = ids[i - 1];
+            likes[i] = likes[i - 1];
+            i--;
+        }
+        ids[i] = filmId;
+        likes[i] = filmLikes;
+    }
+
+    private static List<Long> first(long[] matches, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        for (int w = 0; w < matches.length && ids.size() < limit; w++) {
+            long word = matches[w];
+            while (word != 0 && ids.size() < limit) {
+                ids.add(((long) w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return ids;
+    }
+
+    private static int cardinality(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static int intersectionCount(long[] a, long[] b) {
+        int count = 0;
+        for (int w = 0; w < a.length; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+
+    private static long union(long[][] bitmaps, int word) {
+        long result = 0;
+        for (long[] bitmap : bitmaps) {
+            result |= bitmap[word];
+        }
+        return result;
+    }
+
+    private static boolean contains(long[] words, long id) {
+        int word = (int) (id >>> 6);
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    private static void putCount(Map<Long, Integer> counts, Long id, int count) {
+        if (count > 0) {
+            counts.put(id, count);
+        }
+    }
+
+    public record Result(List<Long> filmIds, int total, Map<Long, Integer> genreCounts,
+                         Map<Long, Integer> mpaCounts) {
+    }
+
+    // Маски растут вместе: у всех одинаковое число слов, так что запрос обходит их без проверок границ
+    private static final class State {
+        final Bitmap live = new Bitmap();
+        final TreeMap<Long, Bitmap> genres = new TreeMap<>();
+        final TreeMap<Long, Bitmap> mpa = new TreeMap<>();
+        final List<Bitmap> yearsUpTo = new ArrayList<>();
+        final List<Bitmap> all = new ArrayList<>(List.of(live));
+        int[] yearByFilm = new int[0];
+        int[] likesByFilm = new int[0];
+        int words;
+        int usedWords;
+        int size;
+
+        void put(Film film, int likes) {
+            int id = film.getId().intValue();
+            remove(id);
+            ensureCapacity(id);
+            live.set(id);
+            usedWords = Math.max(usedWords, (id >>> 6) + 1);
+            size++;
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    bitmap(genres, genre.getId()).set(id);
+                }
+            }
+            if (film.getMpa() != null && film.getMpa().getId() != null) {
+                bitmap(mpa, film.getMpa().getId()).set(id);
+            }
+            int year = Math.max(MIN_YEAR, film.getReleaseDate().getYear());
+            while (MIN_YEAR + yearsUpTo.size() <= year) {
+                Bitmap next = yearsUpTo.isEmpty() ? new Bitmap(words) : yearsUpTo.get(yearsUpTo.size() - 1).copy();
+                yearsUpTo.add(next);
+                all.add(next);
+            }
+            for (int i = year - MIN_YEAR; i < yearsUpTo.size(); i++) {
+                yearsUpTo.get(i).set(id);
+            }
+            yearByFilm[id] = year;
+            likesByFilm[id] = likes;
+        }
+
+        void setLikes(int id, int likes) {
+            if (id < likesByFilm.length && live.get(id)) {
+                likesByFilm[id] = likes;
+            }
+        }
+
+        void remove(int id) {
+            if (id >= yearByFilm.length || !live.get(id)) {
+                return;
+            }
+            live.clear(id);
+            size--;
+            genres.values().forEach(bitmap -> bitmap.clear(id));
+            mpa.values().forEach(bitmap -> bitmap.clear(id));
+            for (int i = yearByFilm[id] - MIN_YEAR; i < yearsUpTo.size(); i++) {
+                yearsUpTo.get(i).clear(id);
+            }
+        }
+
+        // Фильмы, вышедшие не позже года year
+        long[] upTo(int year) {
+            if (year < MIN_YEAR) {
+                return new long[words];
+            }
+            if (year - MIN_YEAR >= yearsUpTo.size()) {
+                return live.words;
+            }
+            return yearsUpTo.get(year - MIN_YEAR).words;
+        }
+
+        // null — фильтра нет; неизвестные id дают пустое объединение
+        long[][] selected(TreeMap<Long, Bitmap> bitmaps, Collection<Long> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return null;
+            }
+            return ids.stream()
+                    .distinct()
+                    .map(bitmaps::get)
+                    .map(bitmap -> bitmap == null ? new long[words] : bitmap.words)
+                    .toArray(long[][]::new);
+        }
+
+        private Bitmap bitmap(TreeMap<Long, Bitmap> bitmaps, Long key) {
+            return bitmaps.computeIfAbsent(key, k -> {
+                Bitmap bitmap = new Bitmap(words);
+                all.add(bitmap);
+                return bitmap;
+            });
+        }
+
+        private void ensureCapacity(int id) {
+            if ((id >>> 6) < words) {
+                return;
+            }
+            words = Math.max((id >>> 6) + 1, words * 2);
+            all.forEach(bitmap -> bitmap.words = Arrays.copyOf(bitmap.words, words));
+            yearByFilm = Arrays.copyOf(yearByFilm, words << 6);
+            likesByFilm = Arrays.copyOf(likesByFilm, words << 6);
+        }
+    }
+
+    private static final class Bitmap {
+        long[] words;
+
+        Bitmap() {
+            this(0);
+        }
+
+        Bitmap(int words) {
+            this.words = new long[words];
+        }
+
+        Bitmap copy() {
+            Bitmap copy = new Bitmap();
+            copy.words = words.clone();
+            return copy;
+        }
+
+        boolean get(int id) {
+            return (words[id >>> 6] & (1L << id)) != 0;
+        }
+
+        void set(int id) {
+            words[id >>> 6] |= 1L << id;
+        }
+
+        void clear(int id) {
+            words[id >>> 6] &= ~(1L << id);
+        }
+    }
+}
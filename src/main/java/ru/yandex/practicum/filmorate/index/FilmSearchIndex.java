@@ -0,0 +1,434 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Полнотекстовый поиск по названию и описанию фильмов.
+ * Для каждого слова хранится список id фильмов по возрастанию (int[]) и частоты слова в них,
+ * слово из названия считается за TITLE_WEIGHT вхождений. Запрос — пересечение списков всех слов
+ * от самого короткого, оценка — сумма tf * idf, умноженная на 1 + ln(1 + лайки).
+ * Слова, которые есть хотя бы в четверти каталога, хранятся плотно: частота по id фильма и битовая маска.
+ * Так они занимают не больше места, проверяются за O(1), а запрос из одних частых слов
+ * пересекает маски по 64 фильма за операцию.
+ * Множители по лайкам лежат в массиве по id фильма, поэтому оценка кандидата обходится без хеш-таблиц.
+ * Поиск идёт под общей блокировкой, изменение каталога — под исключительной.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DENSE_RATIO = 4;
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final Comparator<Hit> WORST_FIRST = Comparator
+            .comparingDouble(Hit::score)
+            .thenComparing(Hit::filmId, Comparator.reverseOrder());
+
+    private final FilmStorage filmStorage;
+    private final int denseMinFilms;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile State state;
+
+    public FilmSearchIndex(FilmStorage filmStorage,
+                           @Value("${filmorate.search.dense-min-films:10000}") int denseMinFilms) {
+        this.filmStorage = filmStorage;
+        this.denseMinFilms = denseMinFilms;
+        this.state = new State(denseMinFilms);
+    }
+
+    // Изменения, пришедшие во время загрузки, теряются, поэтому вызывается только при старте и после генерации данных
+    @PostConstruct
+    public void reload() {
+        State loaded = new State(denseMinFilms);
+        filmStorage.streamAll(LOAD_BATCH_SIZE, films -> films.forEach(film -> loaded.add(film, likesOf(film))));
+        lock.writeLock().lock();
+        try {
+            state = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс загружен: {} фильмов, {} слов", loaded.films, loaded.postings.size());
+    }
+
+    public void add(Film film) {
+        lock.writeLock().lock();
+        try {
+            state.add(film, likesOf(film));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(Collection<Film> films) {
+        lock.writeLock().lock();
+        try {
+            films.forEach(film -> state.add(film, likesOf(film)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Старые слова берутся из прежней версии фильма, лайки остаются прежними
+    public void update(Film before, Film after) {
+        lock.writeLock().lock();
+        try {
+            float boost = state.boost(toIntId(before.getId()));
+            state.remove(before);
+            state.add(after, likesOf(after));
+            if (boost > 0) {
+                state.setBoost(toIntId(after.getId()), boost);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Film film) {
+        lock.writeLock().lock();
+        try {
+            state.remove(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Меняет только множитель в массиве, поэтому достаточно общей блокировки
+    public void updateLikes(Long filmId, int likes) {
+        lock.readLock().lock();
+        try {
+            int id = toIntId(filmId);
+            if (state.boost(id) > 0) {
+                state.setBoost(id, likesBoost(likes));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        Tokenizer.forEachToken(query, terms::add);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return state.search(terms, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int likesOf(Film film) {
+        return film.getLikes() == null ? 0 : film.getLikes().size();
+    }
+
+    private static float likesBoost(int likes) {
+        return (float) (1 + Math.log1p(likes));
+    }
+
+    // film_id в схеме INTEGER, поэтому id фильмов помещаются в int
+    private static int toIntId(Long filmId) {
+        return Math.toIntExact(filmId);
+    }
+
+    private record Hit(int filmId, float score) {
+    }
+
+    private static final class State {
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final int denseMinFilms;
+        private float[] boosts = new float[1024];
+        private int films;
+
+        State(int denseMinFilms) {
+            this.denseMinFilms = denseMinFilms;
+        }
+
+        void add(Film film, int likes) {
+            int filmId = toIntId(film.getId());
+            if (boost(filmId) == 0) {
+                films++;
+            }
+            setBoost(filmId, likesBoost(likes));
+            termFrequencies(film).forEach((term, frequency) -> {
+                Postings list = postings.computeIfAbsent(term, key -> new Postings());
+                list.add(filmId, frequency);
+                if (!list.dense() && films >= denseMinFilms && (long) list.size * DENSE_RATIO >= films) {
+                    list.toDense();
+                }
+            });
+        }
+
+        void remove(Film film) {
+            int filmId = toIntId(film.getId());
+            for (String term : termFrequencies(film).keySet()) {
+                Postings list = postings.get(term);
+                if (list != null && list.remove(filmId) && list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+            if (boost(filmId) > 0) {
+                films--;
+                boosts[filmId] = 0;
+            }
+        }
+
+        float boost(int filmId) {
+            return filmId < boosts.length ? boosts[filmId] : 0;
+        }
+
+        void setBoost(int filmId, float boost) {
+            if (filmId >= boosts.length) {
+                boosts = Arrays.copyOf(boosts, Math.max(filmId + 1, boosts.length * 2));
+            }
+            boosts[filmId] = boost;
+        }
+
+        List<Long> search(Set<String> terms, int limit) {
+            Postings[] lists = new Postings[terms.size()];
+            int n = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    return List.of();
+                }
+                lists[n++] = list;
+            }
+            // Сначала разреженные списки от коротких к длинным, плотные в конце
+            Arrays.sort(lists, Comparator.comparing(Postings::dense).thenComparingInt(list -> list.size));
+            float[] idf = new float[lists.length];
+            // remaining[j] — наибольший возможный вклад слов начиная с j: по нему кандидат отсекается до поиска в списках
+            float[] remaining = new float[lists.length + 1];
+            for (int i = lists.length - 1; i >= 0; i--) {
+                idf[i] = (float) Math.log(1 + (double) films / lists[i].size);
+                remaining[i] = remaining[i + 1] + lists[i].maxFrequency * idf[i];
+            }
+
+            TopHits top = new TopHits(limit);
+            if (lists[0].dense()) {
+                searchDense(lists, idf, top);
+            } else {
+                searchSparse(lists, idf, remaining, top);
+            }
+            return top.filmIds();
+        }
+
+        private void searchSparse(Postings[] lists, float[] idf, float[] remaining, TopHits top) {
+            int[] cursors = new int[lists.length];
+            Postings shortest = lists[0];
+            candidates:
+            for (int i = 0; i < shortest.size; i++) {
+                int filmId = shortest.films[i];
+                float boost = boosts[filmId];
+                float score = shortest.frequencies[i] * idf[0];
+                for (int j = 1; j < lists.length; j++) {
+                    if ((score + remaining[j]) * boost <= top.threshold) {
+                        continue candidates;
+                    }
+                    Postings list = lists[j];
+                    int frequency;
+                    if (list.dense()) {
+                        frequency = list.frequency(filmId);
+                    } else {
+                        int position = list.seek(filmId, cursors[j]);
+                        cursors[j] = position;
+                        if (position == list.size) {
+                            break candidates;
+                        }
+                        frequency = list.films[position] == filmId ? list.frequencies[position] : 0;
+                    }
+                    if (frequency == 0) {
+                        continue candidates;
+                    }
+                    score += frequency * idf[j];
+                }
+                top.offer(filmId, score * boost);
+            }
+        }
+
+        // Все слова частые: пересечение масок по 64 фильма, частоты берутся по id
+        private void searchDense(Postings[] lists, float[] idf, TopHits top) {
+            int words = Integer.MAX_VALUE;
+            for (Postings list : lists) {
+                words = Math.min(words, list.bits.length);
+            }
+            for (int w = 0; w < words; w++) {
+                long word = lists[0].bits[w];
+                for (int j = 1; j < lists.length && word != 0; j++) {
+                    word &= lists[j].bits[w];
+                }
+                while (word != 0) {
+                    int filmId = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    float boost = boosts[filmId];
+                    float score = 0;
+                    for (int j = 0; j < lists.length; j++) {
+                        score += lists[j].frequencies[filmId] * idf[j];
+                    }
+                    top.offer(filmId, score * boost);
+                }
+            }
+        }
+
+        private static Map<String, Integer> termFrequencies(Film film) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            Tokenizer.forEachToken(film.getName(), term -> frequencies.merge(term, TITLE_WEIGHT, Integer::sum));
+            Tokenizer.forEachToken(film.getDescription(), term -> frequencies.merge(term, 1, Integer::sum));
+            return frequencies;
+        }
+    }
+
+    // Лучшие limit фильмов; кандидаты идут по возрастанию id, поэтому равная оценка тоже хуже уже отобранных
+    private static final class TopHits {
+        private final int limit;
+        private final PriorityQueue<Hit> heap;
+        private float threshold = -1;
+
+        TopHits(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        }
+
+        void offer(int filmId, float score) {
+            if (score <= threshold) {
+                return;
+            }
+            heap.add(new Hit(filmId, score));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+            if (heap.size() == limit) {
+                threshold = heap.peek().score();
+            }
+        }
+
+        List<Long> filmIds() {
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(WORST_FIRST.reversed());
+            return hits.stream().map(hit -> (long) hit.filmId()).toList();
+        }
+    }
+
+    /*
+     * Разреженный список: id фильмов по возрастанию и частоты, новые фильмы дописываются в конец.
+     * Плотный: частота по индексу id фильма (0 — слова нет) и битовая маска тех же фильмов.
+     * Частота ограничена 127: описание короче 200 символов, больше не бывает.
+     */
+    private static final class Postings {
+        private int[] films = new int[2];
+        private byte[] frequencies = new byte[2];
+        private long[] bits;
+        private int size;
+        // Верхняя граница частоты: при удалении не уменьшается
+        private byte maxFrequency;
+
+        boolean dense() {
+            return bits != null;
+        }
+
+        void add(int filmId, int frequency) {
+            byte value = (byte) Math.min(frequency, Byte.MAX_VALUE);
+            maxFrequency = (byte) Math.max(maxFrequency, value);
+            if (dense()) {
+                if (filmId >= frequencies.length) {
+                    frequencies = Arrays.copyOf(frequencies, Math.max(filmId + 1, frequencies.length * 2));
+                    bits = Arrays.copyOf(bits, (frequencies.length >>> 6) + 1);
+                }
+                if (frequencies[filmId] == 0) {
+                    bits[filmId >>> 6] |= 1L << filmId;
+                    size++;
+                }
+                frequencies[filmId] = value;
+                return;
+            }
+
+            int index = size > 0 && filmId <= films[size - 1] ? Arrays.binarySearch(films, 0, size, filmId) : -size - 1;
+            if (index >= 0) {
+                frequencies[index] = value;
+                return;
+            }
+            index = -index - 1;
+            if (size == films.length) {
+                int length = size + (size >> 1) + 1;
+                films = Arrays.copyOf(films, length);
+                frequencies = Arrays.copyOf(frequencies, length);
+            }
+            System.arraycopy(films, index, films, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            films[index] = filmId;
+            frequencies[index] = value;
+            size++;
+        }
+
+        boolean remove(int filmId) {
+            if (dense()) {
+                if (frequency(filmId) == 0) {
+                    return false;
+                }
+                frequencies[filmId] = 0;
+                bits[filmId >>> 6] &= ~(1L << filmId);
+                size--;
+                return true;
+            }
+
+            int index = Arrays.binarySearch(films, 0, size, filmId);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(films, index + 1, films, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        // Только для плотного списка
+        int frequency(int filmId) {
+            return filmId < frequencies.length ? frequencies[filmId] : 0;
+        }
+
+        void toDense() {
+            int length = films[size - 1] + 1;
+            byte[] byFilm = new byte[length];
+            long[] mask = new long[(length >>> 6) + 1];
+            for (int i = 0; i < size; i++) {
+                byFilm[films[i]] = frequencies[i];
+                mask[films[i] >>> 6] |= 1L << films[i];
+            }
+            films = null;
+            frequencies = byFilm;
+            bits = mask;
+        }
+
+        // Первая позиция не раньше from с id не меньше filmId: экспоненциальный шаг, затем бинарный поиск
+        int seek(int filmId, int from) {
+            if (from >= size || films[from] >= filmId) {
+                return from;
+            }
+            int low = from;
+            int step = 1;
+            while (low + step < size && films[low + step] < filmId) {
+                low += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(films, low + 1, Math.min(low + step + 1, size), filmId);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/*
+ * Граф дружбы в памяти для подсказок «возможно, вы знакомы».
+ * Основа — CSR: отсортированные id пользователей, смещения и общий массив id друзей, 8 байт на связь.
+ * Изменения после сборки лежат в overlay целыми списками друзей (копирование при записи, читатели без блокировок)
+ * и переносятся в новый CSR, когда их накапливается compact-threshold. Перенос выполняет один писатель,
+ * остальные не ждут его и продолжают писать в overlay.
+ */
+@Slf4j
+@Component
+public class FriendGraph {
+    private static final Comparator<Suggestion> WORST_FIRST = Comparator
+            .comparingInt(Suggestion::mutualFriends)
+            .thenComparing(Suggestion::userId, Comparator.reverseOrder());
+
+    private final UserStorage userStorage;
+    private final int maxScannedEdges;
+    private final int compactThreshold;
+    private final Map<Long, IdSet> overlay = new ConcurrentHashMap<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile Csr csr = Csr.EMPTY;
+
+    public FriendGraph(UserStorage userStorage,
+                       @Value("${filmorate.friend-graph.max-scanned-edges:50000}") int maxScannedEdges,
+                       @Value("${filmorate.friend-graph.compact-threshold:10000}") int compactThreshold) {
+        this.userStorage = userStorage;
+        this.maxScannedEdges = maxScannedEdges;
+        this.compactThreshold = compactThreshold;
+    }
+
+    // Изменения, пришедшие во время загрузки, теряются, поэтому вызывается только при старте и после генерации данных
+    @PostConstruct
+    public synchronized void reload() {
+        CsrBuilder builder = new CsrBuilder();
+        userStorage.forEachFriendship(builder::add);
+        csr = builder.build();
+        overlay.clear();
+        log.info("Граф друзей загружен: {} пользователей, {} связей", csr.userIds.length, csr.friends.length);
+    }
+
+    public void addFriend(Long userId, Long friendId) {
+        update(userId, friends -> friends.add(friendId));
+    }
+
+    public void removeFriend(Long userId, Long friendId) {
+        update(userId, friends -> friends.remove(friendId));
+    }
+
+    // Удалённый пользователь может остаться в чужих списках до перезагрузки, при выдаче такие id отсеиваются
+    public void removeUser(Long userId) {
+        update(userId, IdSet::clear);
+    }
+
+    public int friendCount(Long userId) {
+        IdSet changed = overlay.get(userId);
+        if (changed != null) {
+            return changed.size();
+        }
+        Csr current = csr;
+        int index = Arrays.binarySearch(current.userIds, userId);
+        return index < 0 ? 0 : current.offsets[index + 1] - current.offsets[index];
+    }
+
+    /*
+     * Друзья друзей, упорядоченные по числу общих друзей. Обход ограничен maxScannedEdges связями,
+     * кандидаты считаются в хеш-таблице на примитивах, top-K выбирается кучей.
+     */
+    public List<Suggestion> suggest(Long userId, int limit) {
+        Csr current = csr;
+        long self = userId;
+        long[] direct = friendsOf(current, userId).toLongArray();
+        LongIntCounter candidates = new LongIntCounter();
+        LongConsumer collector = candidateId -> {
+            if (candidateId != self && Arrays.binarySearch(direct, candidateId) < 0) {
+                candidates.add(candidateId, 1);
+            }
+        };
+
+        int scanned = 0;
+        for (long friendId : direct) {
+            if (scanned >= maxScannedEdges) {
+                log.debug("Обход графа для пользователя {} остановлен на {} связях", userId, scanned);
+                break;
+            }
+            scanned += forEachFriend(current, friendId, collector);
+        }
+
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        Suggestion[] worst = new Suggestion[1];
+        candidates.forEach((candidateId, mutualFriends) -> {
+            // Кандидат не лучше худшего из уже отобранных: объект не создаём
+            if (top.size() == limit && mutualFriends < worst[0].mutualFriends()) {
+                return;
+            }
+            top.add(new Suggestion(candidateId, mutualFriends));
+            if (top.size() > limit) {
+                top.poll();
+            }
+            worst[0] = top.peek();
+        });
+
+        List<Suggestion> result = new ArrayList<>(top);
+        result.sort(WORST_FIRST.reversed());
+        return result;
+    }
+
+    private void update(Long userId, Consumer<IdSet> change) {
+        overlay.compute(userId, (id, current) -> {
+            IdSet next = current != null ? new IdSet(current) : csr.friendsOf(id);
+            change.accept(next);
+            return next;
+        });
+        if (overlay.size() >= compactThreshold && compacting.compareAndSet(false, true)) {
+            try {
+                compact();
+            } finally {
+                compacting.set(false);
+            }
+        }
+    }
+
+    // Слияние идёт без монитора, под ним только подмена: reload за это время делает результат ненужным
+    private void compact() {
+        Csr current = csr;
+        Map<Long, IdSet> changes = new HashMap<>(overlay);
+        Csr merged = current.merge(changes);
+        synchronized (this) {
+            if (csr != current) {
+                return;
+            }
+            csr = merged;
+        }
+        // Запись, изменённая после снимка, остаётся в overlay до следующего переноса
+        changes.forEach(overlay::remove);
+        log.debug("Изменения графа друзей перенесены в CSR: {} пользователей", changes.size());
+    }
+
+    private IdSet friendsOf(Csr current, Long userId) {
+        IdSet changed = overlay.get(userId);
+        return changed != null ? changed : current.friendsOf(userId);
+    }
+
+    private int forEachFriend(Csr current, long userId, LongConsumer action) {
+        IdSet changed = overlay.get(userId);
+        if (changed != null) {
+            changed.forEachId(action);
+            return changed.size();
+        }
+        int index = Arrays.binarySearch(current.userIds, userId);
+        if (index < 0) {
+            return 0;
+        }
+        for (int i = current.offsets[index]; i < current.offsets[index + 1]; i++) {
+            action.accept(current.friends[i]);
+        }
+        return current.offsets[index + 1] - current.offsets[index];
+    }
+
+    public record Suggestion(long userId, int mutualFriends) {
+    }
+
+    private static final class Csr {
+        static final Csr EMPTY = new Csr(new long[0], new int[1], new long[0]);
+
+        final long[] userIds;
+        final int[] offsets;
+        final long[] friends;
+
+        Csr(long[] userIds, int[] offsets, long[] friends) {
+            this.userIds = userIds;
+            this.offsets = offsets;
+            this.friends = friends;
+        }
+
+        IdSet friendsOf(long userId) {
+            int index = Arrays.binarySearch(userIds, userId);
+            return index < 0 ? new IdSet() : IdSet.fromSorted(friends, offsets[index], offsets[index + 1]);
+        }
+
+        // Слияние двух отсортированных последовательностей: старого CSR и изменённых пользователей
+        Csr merge(Map<Long, IdSet> changes) {
+            long[] changed = changes.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            CsrBuilder builder = new CsrBuilder();
+            int i = 0;
+            int j = 0;
+            while (i < userIds.length || j < changed.length) {
+                if (j == changed.length || (i < userIds.length && userIds[i] < changed[j])) {
+                    for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                        builder.add(userIds[i], friends[k]);
+                    }
+                    i++;
+                } else {
+                    long userId = changed[j++];
+                    changes.get(userId).forEachId(friendId -> builder.add(userId, friendId));
+                    if (i < userIds.length && userIds[i] == userId) {
+                        i++;
+                    }
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    // Принимает связи, отсортированные по user_id и friend_id
+    private static final class CsrBuilder {
+        private final LongBuffer userIds = new LongBuffer();
+        private final LongBuffer friends = new LongBuffer();
+        private int[] offsets = new int[16];
+
+        void add(long userId, long friendId) {
+            int users = userIds.size;
+            if (users == 0 || userIds.values[users - 1] != userId) {
+                if (users + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[users] = friends.size;
+                userIds.add(userId);
+            }
+            friends.add(friendId);
+        }
+
+        Csr build() {
+            int users = userIds.size;
+            int[] result = Arrays.copyOf(offsets, users + 1);
+            result[users] = friends.size;
+            return new Csr(userIds.toArray(), result, friends.toArray());
+        }
+    }
+
+    private static final class LongBuffer {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.index;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+
+// Рейтинг фильмов по числу лайков, поддерживаемый в памяти инкрементально
+@Slf4j
+@Component
+public class PopularityLeaderboard implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final ConcurrentHashMap<Long, Integer> likesByFilm = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+    private final AtomicLong mismatches = new AtomicLong();
+
+    public PopularityLeaderboard(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void reload() {
+        Map<Long, Integer> likeCounts = filmStorage.findLikeCounts();
+        likesByFilm.clear();
+        ranking.clear();
+        likeCounts.forEach(this::update);
+        log.info("Рейтинг популярности загружен: {} фильмов", likeCounts.size());
+    }
+
+    public void update(Long filmId, int likes) {
+        likesByFilm.compute(filmId, (id, old) -> move(id, old, likes));
+    }
+
+    /*
+     * Без ограничения снизу: отмена, применённая раньше своего лайка, временно даёт -1, а следующий +1
+     * возвращает верное значение. Отрицательный счётчик, который так и не выправился, исправляет checkConsistency.
+     */
+    public void increment(Long filmId, int delta) {
+        likesByFilm.computeIfPresent(filmId, (id, old) -> move(id, old, old + delta));
+    }
+
+    public void remove(Long filmId) {
+        likesByFilm.computeIfPresent(filmId, (id, old) -> {
+            ranking.remove(new Entry(id, old));
+            return null;
+        });
+    }
+
+    // В рейтинге есть все фильмы, в том числе без лайков
+    public boolean contains(Long filmId) {
+        return likesByFilm.containsKey(filmId);
+    }
+
+    public int getLikes(Long filmId) {
+        return Math.max(0, likesByFilm.getOrDefault(filmId, 0));
+    }
+
+    public List<Long> getTop(int count) {
+        // Во время переноса записи фильм может кратко встречаться дважды, поэтому отбрасываем повторы
+        Set<Long> top = new LinkedHashSet<>();
+        for (Entry entry : ranking) {
+            if (top.size() >= count) {
+                break;
+            }
+            top.add(entry.filmId());
+        }
+        return new ArrayList<>(top);
+    }
+
+    // Обход по убыванию лайков, пока visitor возвращает true; во время переноса записи фильм может встретиться дважды
+    public void forEachRanked(LongPredicate visitor) {
+        for (Entry entry : ranking) {
+            if (!visitor.test(entry.filmId())) {
+                return;
+            }
+        }
+    }
+
+    /*
+     * Проверка сообщает о расхождениях и исправляет только отрицательные счётчики. Снимок БД устаревает, пока идёт
+     * сравнение, и запись его значений поверх счётчиков откатила бы лайки, поставленные после снимка. Отрицательный
+     * счётчик заведомо неверен, поэтому он заменяется значением из БД, если не изменился с момента сравнения.
+     * Отсутствие в БД проверяется только для фильмов, которые были в рейтинге до снимка: созданные позже
+     * в него не попали и не считаются расхождением.
+     * Фильмы с ещё не записанными лайками (pendingFilmIds до или после снимка) пропускаются: в БД их лайков нет.
+     */
+    public int checkConsistency(Supplier<Set<Long>> pendingFilmIds) {
+        Set<Long> known = new HashSet<>(likesByFilm.keySet());
+        Set<Long> skipped = new HashSet<>(pendingFilmIds.get());
+        Map<Long, Integer> likeCounts = filmStorage.findLikeCounts();
+        skipped.addAll(pendingFilmIds.get());
+        int found = 0;
+
+        for (Map.Entry<Long, Integer> entry : likeCounts.entrySet()) {
+            Integer cached = likesByFilm.get(entry.getKey());
+            if (!skipped.contains(entry.getKey()) && !entry.getValue().equals(cached)) {
+                log.warn("Рейтинг фильма {} расходится с БД: {} вместо {}", entry.getKey(), cached, entry.getValue());
+                found++;
+                if (cached != null && cached < 0) {
+                    likesByFilm.computeIfPresent(entry.getKey(),
+                            (id, old) -> old.equals(cached) ? move(id, old, entry.getValue()) : old);
+                }
+            }
+        }
+        for (Long filmId : known) {
+            if (!likeCounts.containsKey(filmId) && likesByFilm.containsKey(filmId)) {
+                log.warn("Фильм {} отсутствует в БД, но есть в рейтинге", filmId);
+                found++;
+            }
+        }
+        mismatches.addAndGet(found);
+        return found;
+    }
+
+    public int checkConsistency() {
+        return checkConsistency(Set::of);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.leaderboard.mismatches", mismatches, AtomicLong::get)
+                .description("Films whose in-memory like count differed from the database")
+                .register(registry);
+    }
+
+    private Integer move(Long filmId, Integer oldLikes, int newLikes) {
+        if (oldLikes != null && oldLikes == newLikes) {
+            return oldLikes;
+        }
+        // Сначала добавляем новую запись, чтобы читатели не потеряли фильм между операциями
+        ranking.add(new Entry(filmId, newLikes));
+        if (oldLikes != null) {
+            ranking.remove(new Entry(filmId, oldLikes));
+        }
+        return newLikes;
+    }
+
+    private record Entry(long filmId, int likes) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.Completion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+
+/*
+ * Префиксный индекс для подсказок при вводе: отсортированный массив ключей и бинарный поиск диапазона.
+ * Ключ — нормализованный текст с начала каждого слова (для логинов только с начала строки);
+ * строки не копируются, запись хранит номер элемента и смещение в исходном тексте.
+ * На каждые 64 записи хранится верхняя граница оценки, поэтому в широком диапазоне («а»)
+ * блоки, которые уже не могут попасть в top-K, пропускаются целиком.
+ * Новые и переименованные элементы лежат в TreeSet, удалённые из массива помечаются;
+ * когда изменений набирается compact-threshold, массив пересобирается. Под блокировкой снимается только копия
+ * массивов, сортировка идёт без неё: чтение и запись продолжаются, а id, изменённые за время пересборки,
+ * сверяются с новым массивом при подмене.
+ */
+final class PrefixIndex {
+    private static final int BLOCK_SHIFT = 6;
+
+    private final boolean wordStarts;
+    private final int compactThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Item> overlayItems = new HashMap<>();
+    private final TreeSet<OverlayKey> overlayKeys = new TreeSet<>();
+    private Base base;
+    // Не null, пока идёт пересборка: id, изменённые после снятия копии
+    private Set<Long> touched;
+
+    PrefixIndex(boolean wordStarts, int compactThreshold) {
+        this.wordStarts = wordStarts;
+        this.compactThreshold = compactThreshold;
+        this.base = build(new ArrayList<>(), wordStarts);
+    }
+
+    void load(List<Item> items) {
+        Base loaded = build(new ArrayList<>(items), wordStarts);
+        lock.writeLock().lock();
+        try {
+            base = loaded;
+            overlayItems.clear();
+            overlayKeys.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return base.live + overlayItems.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(long id, String text, int score) {
+        Snapshot snapshot = null;
+        lock.writeLock().lock();
+        try {
+            int index = base.indexOf(id);
+            // Текст не изменился: достаточно обновить оценку, массив не трогаем
+            if (index >= 0 && !base.removed[index] && Objects.equals(base.texts[index], text)) {
+                base.setScore(index, score);
+                touch(id);
+                return;
+            }
+            removeLocked(id);
+            Item item = new Item(id, text, score);
+            overlayItems.put(id, item);
+            forEachWordStart(text, offset -> overlayKeys.add(new OverlayKey(key(text, offset), id)));
+            if (touched == null && overlayItems.size() >= compactThreshold) {
+                snapshot = snapshotLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (snapshot != null) {
+            compact(snapshot);
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void setScore(long id, int score) {
+        lock.writeLock().lock();
+        try {
+            Item item = overlayItems.get(id);
+            if (item != null) {
+                item.score = score;
+                touch(id);
+                return;
+            }
+            int index = base.indexOf(id);
+            if (index >= 0 && !base.removed[index]) {
+                base.setScore(index, score);
+                touch(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Порядок: оценка по убыванию, при равенстве меньший id; элемент выдаётся один раз, сколько бы слов ни совпало
+    List<Completion> complete(String prefix, int limit) {
+        String key = Tokenizer.normalize(prefix.strip());
+        TopCompletions top = new TopCompletions(limit);
+        lock.readLock().lock();
+        try {
+            Base current = base;
+            int from = current.bound(key, 0);
+            int to = current.bound(key, 1);
+            int i = from;
+            while (i < to) {
+                int blockEnd = Math.min(to, ((i >>> BLOCK_SHIFT) + 1) << BLOCK_SHIFT);
+                if (current.blockMax[i >>> BLOCK_SHIFT] < top.minScore()) {
+                    i = blockEnd;
+                    continue;
+                }
+                for (; i < blockEnd; i++) {
+                    int item = current.entryItems[i];
+                    if (!current.removed[item]) {
+                        top.offer(current.ids[item], current.scores[item], current.texts[item]);
+                    }
+                }
+            }
+            OverlayKey fromKey = new OverlayKey(key, Long.MIN_VALUE);
+            OverlayKey toKey = new OverlayKey(key + Character.MAX_VALUE, Long.MIN_VALUE);
+            for (OverlayKey overlayKey : overlayKeys.subSet(fromKey, toKey)) {
+                Item item = overlayItems.get(overlayKey.id());
+                top.offer(item.id, item.score, item.text);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.toList();
+    }
+
+    private void removeLocked(long id) {
+        touch(id);
+        Item item = overlayItems.remove(id);
+        if (item != null) {
+            forEachWordStart(item.text, offset -> overlayKeys.remove(new OverlayKey(key(item.text, offset), id)));
+        }
+        int index = base.indexOf(id);
+        if (index >= 0 && !base.removed[index]) {
+            base.removed[index] = true;
+            base.live--;
+        }
+    }
+
+    private void touch(long id) {
+        if (touched != null) {
+            touched.add(id);
+        }
+    }
+
+    // Массивы копируются целиком, это дешевле, чем собирать элементы под блокировкой
+    private Snapshot snapshotLocked() {
+        touched = new HashSet<>();
+        List<Item> overlay = new ArrayList<>(overlayItems.size());
+        overlayItems.values().forEach(item -> overlay.add(new Item(item.id, item.text, item.score)));
+        return new Snapshot(base, base.ids.clone(), base.texts.clone(), base.scores.clone(), base.removed.clone(),
+                overlay);
+    }
+
+    private void compact(Snapshot snapshot) {
+        Base compacted = null;
+        try {
+            compacted = build(snapshot.items(), wordStarts);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // load за это время заменил данные целиком: пересобранный массив уже устарел
+                if (compacted != null && base == snapshot.base()) {
+                    swapLocked(compacted);
+                }
+                touched = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void swapLocked(Base compacted) {
+        for (long id : touched) {
+            int index = compacted.indexOf(id);
+            if (index < 0 || compacted.removed[index]) {
+                continue;
+            }
+            int current = base.indexOf(id);
+            if (!overlayItems.containsKey(id) && current >= 0 && !base.removed[current]) {
+                // Менялась только оценка, текст тот же
+                compacted.setScore(index, base.scores[current]);
+            } else {
+                // Элемент удалён или его актуальная версия лежит в overlay
+                compacted.removed[index] = true;
+                compacted.live--;
+            }
+        }
+        // Элементы overlay, не менявшиеся после копии, уже есть в новом массиве
+        List<Item> changed = overlayItems.values().stream()
+                .filter(item -> touched.contains(item.id))
+                .toList();
+        overlayItems.clear();
+        overlayKeys.clear();
+        for (Item item : changed) {
+            overlayItems.put(item.id, item);
+            forEachWordStart(item.text, offset -> overlayKeys.add(new OverlayKey(key(item.text, offset), item.id)));
+        }
+        base = compacted;
+    }
+
+    private void forEachWordStart(String text, IntConsumer action) {
+        forEachWordStart(text, wordStarts, action);
+    }
+
+    private static void forEachWordStart(String text, boolean wordStarts, IntConsumer action) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        if (!wordStarts) {
+            action.accept(0);
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (Tokenizer.isWordChar(text.charAt(i)) && (i == 0 || !Tokenizer.isWordChar(text.charAt(i - 1)))) {
+                action.accept(i);
+            }
+        }
+    }
+
+    private static String key(String text, int offset) {
+        return Tokenizer.normalize(text.substring(offset));
+    }
+
+    private static Base build(List<Item> items, boolean wordStarts) {
+        items.sort(Comparator.comparingLong(item -> item.id));
+        int size = items.size();
+        long[] ids = new long[size];
+        String[] texts = new String[size];
+        int[] scores = new int[size];
+        int[] firstEntry = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            Item item = items.get(i);
+            ids[i] = item.id;
+            texts[i] = item.text;
+            scores[i] = item.score;
+            int[] count = new int[1];
+            forEachWordStart(item.text, wordStarts, offset -> count[0]++);
+            firstEntry[i + 1] = firstEntry[i] + count[0];
+        }
+
+        int entries = firstEntry[size];
+        // Тексты нормализуются один раз, а не при каждом сравнении
+        String[] keys = new String[size];
+        int[] unsortedItems = new int[entries];
+        int[] unsortedOffsets = new int[entries];
+        for (int i = 0; i < size; i++) {
+            keys[i] = texts[i] == null ? "" : Tokenizer.normalize(texts[i]);
+            int item = i;
+            int[] next = {firstEntry[i]};
+            forEachWordStart(texts[i], wordStarts, offset -> {
+                unsortedItems[next[0]] = item;
+                unsortedOffsets[next[0]++] = offset;
+            });
+        }
+
+        // Записи созданы в порядке элементов, устойчивая сортировка сохраняет его при равных ключах
+        int[] order = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            order[i] = i;
+        }
+        sort(order, (a, b) -> compareKeys(keys[unsortedItems[a]], unsortedOffsets[a],
+                keys[unsortedItems[b]], unsortedOffsets[b]));
+
+        // positions[e] — место исходной записи e в отсортированном массиве, нужно для обновления blockMax
+        int[] entryItems = new int[entries];
+        int[] entryOffsets = new int[entries];
+        int[] positions = new int[entries];
+        int[] blockMax = new int[(entries >>> BLOCK_SHIFT) + 1];
+        Arrays.fill(blockMax, Integer.MIN_VALUE);
+        for (int p = 0; p < entries; p++) {
+            int e = order[p];
+            entryItems[p] = unsortedItems[e];
+            entryOffsets[p] = unsortedOffsets[e];
+            positions[e] = p;
+            blockMax[p >>> BLOCK_SHIFT] = Math.max(blockMax[p >>> BLOCK_SHIFT], scores[unsortedItems[e]]);
+        }
+        return new Base(ids, texts, scores, firstEntry, positions, entryItems, entryOffsets, blockMax);
+    }
+
+    private static int compareKeys(String a, int aOffset, String b, int bOffset) {
+        int aLength = a.length() - aOffset;
+        int bLength = b.length() - bOffset;
+        for (int i = 0; i < Math.min(aLength, bLength); i++) {
+            char x = a.charAt(aOffset + i);
+            char y = b.charAt(bOffset + i);
+            if (x != y) {
+                return Character.compare(x, y);
+            }
+        }
+        return Integer.compare(aLength, bLength);
+    }
+
+    // Восходящая сортировка слиянием по int[]: без упаковки в Integer и без пула потоков
+    private static void sort(int[] order, IntBinaryOperator comparator) {
+        int[] from = order;
+        int[] to = new int[order.length];
+        for (int width = 1; width < order.length; width <<= 1) {
+            for (int low = 0; low < order.length; low += width << 1) {
+                int middle = Math.min(low + width, order.length);
+                int high = Math.min(low + (width << 1), order.length);
+                int i = low;
+                int j = middle;
+                int k = low;
+                while (i < middle && j < high) {
+                    to[k++] = comparator.applyAsInt(from[j], from[i]) < 0 ? from[j++] : from[i++];
+                }
+                while (i < middle) {
+                    to[k++] = from[i++];
+                }
+                while (j < high) {
+                    to[k++] = from[j++];
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, order.length);
+        }
+    }
+
+    static final class Item {
+        final long id;
+        final String text;
+        int score;
+
+        Item(long id, String text, int score) {
+            this.id = id;
+            this.text = text;
+            this.score = score;
+        }
+    }
+
+    private record Snapshot(Base base, long[] ids, String[] texts, int[] scores, boolean[] removed,
+                            List<Item> overlay) {
+        List<Item> items() {
+            List<Item> items = new ArrayList<>(ids.length + overlay.size());
+            for (int i = 0; i < ids.length; i++) {
+                if (!removed[i]) {
+                    items.add(new Item(ids[i], texts[i], scores[i]));
+                }
+            }
+            items.addAll(overlay);
+            return items;
+        }
+    }
+
+    private record OverlayKey(String key, long id) implements Comparable<OverlayKey> {
+        @Override
+        public int compareTo(OverlayKey other) {
+            int compared = key.compareTo(other.key);
+            return compared != 0 ? compared : Long.compare(id, other.id);
+        }
+    }
+
+    private static final class Base {
+        final long[] ids;
+        final String[] texts;
+        final int[] scores;
+        final boolean[] removed;
+        final int[] firstEntry;
+        final int[] positions;
+        final int[] entryItems;
+        final int[] entryOffsets;
+        final int[] blockMax;
+        int live;
+
+        Base(long[] ids, String[] texts, int[] scores, int[] firstEntry, int[] positions,
+             int[] entryItems, int[] entryOffsets, int[] blockMax) {
+            this.ids = ids;
+            this.texts = texts;
+            this.scores = scores;
+            this.removed = new boolean[ids.length];
+            this.firstEntry = firstEntry;
+            this.positions = positions;
+            this.entryItems = entryItems;
+            this.entryOffsets = entryOffsets;
+            this.blockMax = blockMax;
+            this.live = ids.length;
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        // Граница только поднимается: после уменьшения оценки блок просто просматривается лишний раз до пересборки
+        void setScore(int index, int score) {
+            scores[index] = score;
+            for (int e = firstEntry[index]; e < firstEntry[index + 1]; e++) {
+                int block = positions[e] >>> BLOCK_SHIFT;
+                blockMax[block] = Math.max(blockMax[block], score);
+            }
+        }
+
+        // Первая запись, для которой сравнение с префиксом больше или равно threshold (0 — нижняя граница, 1 — верхняя)
+        int bound(String prefix, int threshold) {
+            int low = 0;
+            int high = entryItems.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareWithPrefix(middle, prefix) < threshold) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // 0, если ключ начинается с префикса
+        private int compareWithPrefix(int entry, String prefix) {
+            String text = texts[entryItems[entry]];
+            int offset = entryOffsets[entry];
+            int length = Math.min(text.length() - offset, prefix.length());
+            for (int i = 0; i < length; i++) {
+                char c = Tokenizer.normalize(text.charAt(offset + i));
+                char p = prefix.charAt(i);
+                if (c != p) {
+                    return c < p ? -1 : 1;
+                }
+            }
+            return text.length() - offset >= prefix.length() ? 0 : -1;
+        }
+    }
+
+    private static final class TopCompletions {
+        private final long[] ids;
+        private final int[] scores;
+        private final String[] texts;
+        private int size;
+
+        TopCompletions(int limit) {
+            this.ids = new long[limit];
+            this.scores = new int[limit];
+            this.texts = new String[limit];
+        }
+
+        int minScore() {
+            return size < ids.length ? Integer.MIN_VALUE : scores[size - 1];
+        }
+
+        void offer(long id, int score, String text) {
+            if (size == ids.length && !better(score, id, size - 1)) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return;
+                }
+            }
+            int i = size < ids.length ? size++ : size - 1;
+            while (i > 0 && better(score, id, i - 1)) {
+                ids[i] = ids[i - 1];
+                scores[i] = scores[i - 1];
+                texts[i] = texts[i - 1];
+                i--;
+            }
+            ids[i] = id;
+            scores[i] = score;
+            texts[i] = text;
+        }
+
+        List<Completion> toList() {
+            List<Completion> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new Completion(ids[i], texts[i], scores[i]));
+            }
+            return result;
+        }
+
+        private boolean better(int score, long id, int index) {
+            return score > scores[index] || (score == scores[index] && id < ids[index]);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.function.Consumer;
+
+// Разбиение текста на слова из букв и цифр в нижнем регистре, «ё» приравнивается к «е»
+final class Tokenizer {
+    private Tokenizer() {
+    }
+
+    // Посимвольно, чтобы длина и позиции нормализованного текста совпадали с исходным
+    static String normalize(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = normalize(text.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    static void forEachToken(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && isWordChar(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                consumer.accept(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+}
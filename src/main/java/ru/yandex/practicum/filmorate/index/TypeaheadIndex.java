@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Completion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Подсказки при вводе: названия фильмов по началу любого слова с весом по числу лайков
+ * и логины пользователей по началу логина с весом по числу друзей. Запрос не обращается к БД,
+ * индексы обновляются из сервисов при создании, изменении и удалении.
+ */
+@Slf4j
+@Component
+public class TypeaheadIndex {
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final PrefixIndex films;
+    private final PrefixIndex users;
+
+    public TypeaheadIndex(FilmStorage filmStorage, UserStorage userStorage,
+                          @Value("${filmorate.typeahead.compact-threshold:10000}") int compactThreshold) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.films = new PrefixIndex(true, compactThreshold);
+        this.users = new PrefixIndex(false, compactThreshold);
+    }
+
+    // Изменения, пришедшие во время загрузки, теряются, поэтому вызывается только при старте и после генерации данных
+    @PostConstruct
+    public synchronized void reload() {
+        long started = System.currentTimeMillis();
+        List<PrefixIndex.Item> filmItems = new ArrayList<>();
+        filmStorage.streamAll(LOAD_BATCH_SIZE, batch -> batch.forEach(film ->
+                filmItems.add(new PrefixIndex.Item(film.getId(), film.getName(), film.getLikes().size()))));
+        films.load(filmItems);
+
+        List<PrefixIndex.Item> userItems = new ArrayList<>();
+        List<User> page = userStorage.findPage(0L, LOAD_BATCH_SIZE);
+        while (!page.isEmpty()) {
+            page.forEach(user -> userItems.add(new PrefixIndex.Item(user.getId(), user.getLogin(),
+                    user.getFriends().size())));
+            page = userStorage.findPage(page.get(page.size() - 1).getId(), LOAD_BATCH_SIZE);
+        }
+        users.load(userItems);
+        log.info("Индекс подсказок загружен: {} фильмов, {} пользователей за {} мс",
+                filmItems.size(), userItems.size(), System.currentTimeMillis() - started);
+    }
+
+    public void putFilm(Long filmId, String name, int likes) {
+        films.put(filmId, name, likes);
+    }
+
+    public void removeFilm(Long filmId) {
+        films.remove(filmId);
+    }
+
+    public void updateFilmLikes(Long filmId, int likes) {
+        films.setScore(filmId, likes);
+    }
+
+    public List<Completion> completeFilms(String prefix, int limit) {
+        return films.complete(prefix, limit);
+    }
+
+    public void putUser(Long userId, String login, int friends) {
+        users.put(userId, login, friends);
+    }
+
+    public void removeUser(Long userId) {
+        users.remove(userId);
+    }
+
+    public void updateUserFriends(Long userId, int friends) {
+        users.setScore(userId, friends);
+    }
+
+    public List<Completion> completeUsers(String prefix, int limit) {
+        return users.complete(prefix, limit);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Считает каждое выполненное выражение (пакет считается одним обращением к БД)
+public class MeteredJdbcTemplate extends JdbcTemplate {
+
+    public MeteredJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        QueryCounter.increment();
+        super.applyStatementSettings(stmt);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+// Счётчик SQL-запросов текущего HTTP-запроса, хранится в потоке обработки
+public final class QueryCounter {
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    public static int stop() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null ? 0 : counter[0];
+    }
+
+    public static void increment() {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+}
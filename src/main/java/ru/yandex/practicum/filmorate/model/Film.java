@@ -9,15 +9,13 @@ import lombok.Data;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 
 @Data
 public class Film {
     private Long id;
-    private Set<Long> likes = new HashSet<>();
+    private IdSet likes = new IdSet();
 
     @NotBlank(message = "Название не может быть пустым")
     private String name;
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class FilmBatchResult {
+    private List<Long> ids = new ArrayList<>();
+    private List<ItemError> errors = new ArrayList<>();
+
+    public void addError(int index, String error) {
+        errors.add(new ItemError(index, error));
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ItemError {
+        private int index;
+        private String error;
+    }
+}
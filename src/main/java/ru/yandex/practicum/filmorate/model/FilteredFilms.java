@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+// Первые фильмы выборки, общее число совпадений и число фильмов по каждому жанру и рейтингу (id -> количество)
+@Value
+public class FilteredFilms {
+    List<Film> films;
+    int total;
+    Map<Long, Integer> genreCounts;
+    Map<Long, Integer> mpaCounts;
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+@Value
+public class FriendSuggestion {
+    User user;
+    int mutualFriends;
+}
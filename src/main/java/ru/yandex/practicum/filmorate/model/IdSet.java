@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/*
+ * Множество id на отсортированном массиве long: 8 байт на элемент вместо ~50 у HashSet<Long>.
+ * Поиск бинарный, добавление по возрастанию (так id приходят из БД) идёт в конец массива,
+ * пересечение и объединение двух IdSet выполняются слиянием без упаковки в Long.
+ * Для Jackson это обычная коллекция: сериализуется в массив чисел по возрастанию.
+ * Не потокобезопасно, как и HashSet.
+ */
+public class IdSet extends AbstractSet<Long> {
+    private static final long[] EMPTY = new long[0];
+
+    private long[] ids = EMPTY;
+    private int size;
+    private int modCount;
+
+    public IdSet() {
+    }
+
+    public IdSet(Collection<? extends Long> ids) {
+        if (ids instanceof IdSet other) {
+            this.ids = Arrays.copyOf(other.ids, other.size);
+            this.size = other.size;
+        } else {
+            addAll(ids);
+        }
+    }
+
+    // Массив должен быть отсортирован по возрастанию и без повторов, как срез CSR в FriendGraph
+    public static IdSet fromSorted(long[] ids, int from, int to) {
+        IdSet set = new IdSet();
+        set.ids = Arrays.copyOfRange(ids, from, to);
+        set.size = to - from;
+        return set;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long id && contains(id.longValue());
+    }
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    @Override
+    public boolean add(Long id) {
+        return add(id.longValue());
+    }
+
+    public boolean add(long id) {
+        if (size > 0 && id <= ids[size - 1]) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            insertAt(-index - 1, id);
+        } else {
+            insertAt(size, id);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Long id)) {
+            return false;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        ids = EMPTY;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> c) {
+        if (!(c instanceof IdSet other)) {
+            return super.addAll(c);
+        }
+        long[] merged = new long[size + other.size];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < size && j < other.size) {
+            long a = ids[i];
+            long b = other.ids[j];
+            if (a < b) {
+                merged[n++] = a;
+                i++;
+            } else if (a > b) {
+                merged[n++] = b;
+                j++;
+            } else {
+                merged[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        while (i < size) {
+            merged[n++] = ids[i++];
+        }
+        while (j < other.size) {
+            merged[n++] = other.ids[j++];
+        }
+        boolean changed = n != size;
+        ids = merged;
+        size = n;
+        modCount++;
+        return changed;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (!(c instanceof IdSet other)) {
+            return super.retainAll(c);
+        }
+        // Пересечение слиянием, результат записывается поверх текущего массива
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < size && j < other.size) {
+            long a = ids[i];
+            long b = other.ids[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                ids[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        boolean changed = n != size;
+        size = n;
+        modCount++;
+        return changed;
+    }
+
+    public void forEachId(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(ids[i]);
+        }
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Long next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return ids[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    private void insertAt(int index, long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+        modCount++;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        modCount++;
+    }
+}
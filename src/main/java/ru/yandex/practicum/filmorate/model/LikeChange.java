@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+// Итоговое состояние лайка пользователя, которое нужно записать в хранилище
+@Value
+public class LikeChange {
+    Long filmId;
+    Long userId;
+    boolean liked;
+}
@@ -8,14 +8,12 @@ import lombok.Data;
 
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 
 @Data
 public class User {
     private Long id;
-    private Set<Long> friends = new HashSet<>();
+    private IdSet friends = new IdSet();
 
     @Email(message = "Некорректный email")
     @NotBlank(message = "Email не может быть пустым")
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+// Синхронная запись каждого лайка в хранилище
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "false", matchIfMissing = true)
+public class DirectLikeWriter implements LikeWriter {
+    private final FilmStorage filmStorage;
+
+    public DirectLikeWriter(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return filmStorage.addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        return filmStorage.removeLike(filmId, userId);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResult;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+// Пакетная загрузка фильмов: валидация по одному, запись в БД порциями
+@Service
+@Slf4j
+public class FilmBatchService {
+    private final FilmStorage filmStorage;
+    private final FilmService filmService;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final TypeaheadIndex typeahead;
+    private final FacetIndex facetIndex;
+    private final Validator validator;
+    private final int chunkSize;
+
+    @Autowired
+    public FilmBatchService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                            FilmService filmService,
+                            PopularityLeaderboard leaderboard,
+                            FilmSearchIndex searchIndex,
+                            TypeaheadIndex typeahead,
+                            FacetIndex facetIndex,
+                            Validator validator,
+                            @Value("${filmorate.batch.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.filmService = filmService;
+        this.leaderboard = leaderboard;
+        this.searchIndex = searchIndex;
+        this.typeahead = typeahead;
+        this.facetIndex = facetIndex;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public FilmBatchResult createFilms(Iterator<Film> films) {
+        FilmBatchResult result = new FilmBatchResult();
+        List<Film> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        while (true) {
+            Film film;
+            try {
+                if (!films.hasNext()) {
+                    break;
+                }
+                film = films.next();
+            } catch (RuntimeException e) {
+                // После ошибки разбора продолжить чтение потока нельзя
+                log.warn("Ошибка разбора фильма с индексом {}: {}", index, e.getMessage());
+                result.addError(index, "Некорректный формат данных фильма");
+                break;
+            }
+
+            String error = validate(film);
+            if (error != null) {
+                result.addError(index, error);
+            } else {
+                chunk.add(film);
+                chunkIndexes.add(index);
+            }
+            index++;
+
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, chunkIndexes, result);
+            }
+        }
+        flush(chunk, chunkIndexes, result);
+
+        log.info("Пакетная загрузка завершена: создано {}, ошибок {}", result.getIds().size(),
+                result.getErrors().size());
+        return result;
+    }
+
+    private String validate(Film film) {
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        try {
+            filmService.validate(film);
+            return null;
+        } catch (ValidationException | NotFoundException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void flush(List<Film> chunk, List<Integer> chunkIndexes, FilmBatchResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Long> ids = filmStorage.createAll(chunk);
+            ids.forEach(id -> leaderboard.update(id, 0));
+            searchIndex.addAll(chunk);
+            chunk.forEach(film -> typeahead.putFilm(film.getId(), film.getName(), film.getLikes().size()));
+            facetIndex.putAll(chunk);
+            result.getIds().addAll(ids);
+        } catch (RuntimeException e) {
+            log.error("Ошибка сохранения порции фильмов: ", e);
+            chunkIndexes.forEach(i -> result.addError(i, "Не удалось сохранить фильм"));
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+}
@@ -3,17 +3,34 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Completion;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRecommendation;
+import ru.yandex.practicum.filmorate.model.FilteredFilms;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,101 +40,299 @@ public class FilmService {
     private final UserService userService;
     private final GenreService genreService;
     private final MpaService mpaService;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmCache filmCache;
+    private final LikeWriter likeWriter;
+    private final CoLikeIndex coLikeIndex;
+    private final FilmSearchIndex searchIndex;
+    private final TypeaheadIndex typeahead;
+    private final FacetIndex facetIndex;
+    private final EntityVersions versions;
+    private final Object[] filmLocks = new Object[FILM_LOCKS];
+    private static final int FILM_LOCKS = 64;
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_COMPLETIONS = 20;
+    private static final String SORT_POPULAR = "popular";
     private static final LocalDate CINEMA_BIRTHDAY = LocalDate.of(1895, 12, 28);
 
     @Autowired
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage, UserService userService,
                        GenreService genreService,
-                       MpaService mpaService) {
+                       MpaService mpaService,
+                       PopularityLeaderboard leaderboard,
+                       FilmCache filmCache,
+                       LikeWriter likeWriter,
+                       CoLikeIndex coLikeIndex,
+                       FilmSearchIndex searchIndex,
+                       TypeaheadIndex typeahead,
+                       FacetIndex facetIndex,
+                       EntityVersions versions) {
         this.filmStorage = filmStorage;
         this.userService = userService;
         this.genreService = genreService;
         this.mpaService = mpaService;
+        this.leaderboard = leaderboard;
+        this.filmCache = filmCache;
+        this.likeWriter = likeWriter;
+        this.coLikeIndex = coLikeIndex;
+        this.searchIndex = searchIndex;
+        this.typeahead = typeahead;
+        this.facetIndex = facetIndex;
+        this.versions = versions;
+        for (int i = 0; i < FILM_LOCKS; i++) {
+            filmLocks[i] = new Object();
+        }
     }
 
     public Film createFilm(Film film) {
-        validateFilm(film);
-        validateMpa(film.getMpa());
-        validateGenres(film.getGenres());
-        return filmStorage.create(film);
+        validate(film);
+        Film created = filmStorage.create(film);
+        leaderboard.update(created.getId(), created.getLikes().size());
+        searchIndex.add(created);
+        typeahead.putFilm(created.getId(), created.getName(), created.getLikes().size());
+        facetIndex.put(created, created.getLikes().size());
+        return created;
     }
 
     public Film updateFilm(Film film) {
-        validateFilm(film);
-        validateMpa(film.getMpa());
-        validateGenres(film.getGenres());
-        return filmStorage.amend(film);
+        validate(film);
+        synchronized (lockFor(film.getId())) {
+            Film before = getFilmById(film.getId());
+            Film updated = filmStorage.amend(film);
+            versions.filmChanged(updated.getId());
+            filmCache.invalidate(updated.getId());
+            searchIndex.update(before, updated);
+            typeahead.putFilm(updated.getId(), updated.getName(), leaderboard.getLikes(updated.getId()));
+            facetIndex.put(updated, leaderboard.getLikes(updated.getId()));
+            return updated;
+        }
     }
 
     public List<Film> getAllFilms() {
         return filmStorage.findAll();
     }
 
+    public void exportFilms(Consumer<List<Film>> consumer) {
+        filmStorage.streamAll(EXPORT_BATCH_SIZE, consumer);
+    }
+
+    public Page<Film> getFilmsPage(String after, int limit) {
+        PageCursor.checkLimit(limit);
+        return PageCursor.toPage(filmStorage.findPage(PageCursor.decode(after), limit + 1), limit, Film::getId);
+    }
+
     public Film getFilmById(Long id) {
-        return filmStorage.find(id);
+        return filmCache.get(id, filmId -> likeWriter.applyPending(filmStorage.find(filmId)));
+    }
+
+    /*
+     * Для кэша готового JSON, который сверяет версии сам. Чтение идёт мимо FilmCache: запись меняет версию
+     * до invalidate, и между ними FilmCache ещё отдал бы прежнюю копию, которая легла бы в JSON-кэш под новым тегом.
+     */
+    public Film loadFilm(Long id) {
+        return likeWriter.applyPending(filmStorage.find(id));
+    }
+
+    public List<Film> loadFilmsByIds(List<Long> filmIds) {
+        List<Film> films = filmStorage.findByIds(filmIds);
+        films.forEach(likeWriter::applyPending);
+        return films;
     }
 
     public void addLike(Long filmId, Long userId) {
-        Film film = filmStorage.find(filmId);
         userService.getUserById(userId); // Проверка существования пользователя
-        film.getLikes().add(userId);
-        filmStorage.amend(film);
+        if (likeWriter.addLike(filmId, userId)) {
+            versions.filmChanged(filmId);
+            filmCache.invalidate(filmId);
+            leaderboard.increment(filmId, 1);
+            coLikeIndex.addLike(filmId, userId);
+            int likes = leaderboard.getLikes(filmId);
+            searchIndex.updateLikes(filmId, likes);
+            typeahead.updateFilmLikes(filmId, likes);
+            facetIndex.updateLikes(filmId, likes);
+        }
     }
 
     public void deleteLike(Long filmId, Long userId) {
-        Film film = filmStorage.find(filmId);
-        if (!film.getLikes().remove(userId)) {
+        if (!likeWriter.removeLike(filmId, userId)) {
             throw new NotFoundException("Лайк не найден");
         }
-        filmStorage.amend(film);
+        likeRemoved(filmId, userId);
     }
 
     public void deleteFilm(Long id) {
-        Film film = filmStorage.find(id);
-        filmStorage.delete(film);
+        synchronized (lockFor(id)) {
+            Film film = filmStorage.find(id);
+            filmStorage.delete(film);
+            versions.filmChanged(id);
+            filmCache.invalidate(id);
+            leaderboard.remove(id);
+            coLikeIndex.removeFilm(id);
+            searchIndex.remove(film);
+            typeahead.removeFilm(id);
+            facetIndex.remove(id);
+        }
+    }
+
+    /*
+     * Вызывается перед удалением пользователя: каскад в БД убирает его лайки молча, а рейтинг продолжал бы их считать.
+     * Лайки снимаются через likeWriter, как при отмене, поэтому и ещё не записанные лайки из очереди не доходят до базы.
+     */
+    public void removeUserLikes(Long userId) {
+        Set<Long> filmIds = likeWriter.applyPendingLikes(userId, new HashSet<>(filmStorage.findLikedFilmIds(userId)));
+        for (Long filmId : filmIds) {
+            if (likeWriter.removeLike(filmId, userId)) {
+                likeRemoved(filmId, userId);
+            }
+        }
+    }
+
+    /*
+     * Индексы заменяют старую версию фильма на новую по прочитанной до записи копии.
+     * Без блокировки два параллельных обновления читают одну и ту же копию, и слова промежуточной версии
+     * остаются в индексах навсегда, поэтому чтение, запись и обновление индексов идут под блокировкой по id фильма.
+     */
+    private Object lockFor(Long filmId) {
+        return filmLocks[Math.floorMod(filmId.hashCode(), FILM_LOCKS)];
+    }
+
+    // Снятый лайк убирается из кэша, рейтинга и всех индексов, которые учитывают лайки
+    private void likeRemoved(Long filmId, Long userId) {
+        versions.filmChanged(filmId);
+        filmCache.invalidate(filmId);
+        leaderboard.increment(filmId, -1);
+        coLikeIndex.removeLike(filmId, userId);
+        int likes = leaderboard.getLikes(filmId);
+        searchIndex.updateLikes(filmId, likes);
+        typeahead.updateFilmLikes(filmId, likes);
+        facetIndex.updateLikes(filmId, likes);
+    }
+
+    // Отложенные лайки ещё не в БД, поэтому проверка рейтинга запускается здесь, где известна очередь записи
+    @Scheduled(fixedDelayString = "${filmorate.leaderboard.consistency-check-ms:300000}",
+            initialDelayString = "${filmorate.leaderboard.consistency-check-ms:300000}")
+    public void checkLeaderboard() {
+        leaderboard.checkConsistency(likeWriter::pendingFilmIds);
     }
 
     public List<Film> getPopularFilms(Integer count) {
+        return getFilmsByIds(getPopularFilmIds(count));
+    }
+
+    public List<Long> getPopularFilmIds(Integer count) {
         int filmsCount = count == null ? 10 : count;
-        return filmStorage.findAll().stream()
-                .sorted(Comparator.comparingInt(f -> -f.getLikes().size()))
-                .limit(filmsCount)
+        return leaderboard.getTop(filmsCount);
+    }
+
+    // Фильтры и счётчики считает индекс масок в памяти, из хранилища загружаются только фильмы выдачи
+    public FilteredFilms filterFilms(List<Long> genreIds, List<Long> mpaIds, Integer yearFrom, Integer yearTo,
+                                     String sort, int limit) {
+        PageCursor.checkLimit(limit);
+        if (sort != null && !sort.equals(SORT_POPULAR)) {
+            throw new ValidationException("Неизвестная сортировка: " + sort);
+        }
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new ValidationException("Начальный год не может быть больше конечного");
+        }
+        FacetIndex.Result result = facetIndex.filter(genreIds, mpaIds, yearFrom, yearTo, sort != null, limit);
+        return new FilteredFilms(getFilmsByIds(result.filmIds()), result.total(), result.genreCounts(),
+                result.mpaCounts());
+    }
+
+    // Поиск по словам названия и описания: порядок задаёт индекс, сами фильмы загружаются через кэш
+    public List<Film> searchFilms(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new ValidationException("Количество результатов должно быть от 1 до " + MAX_SEARCH_RESULTS);
+        }
+        return getFilmsByIds(searchIndex.search(query, limit));
+    }
+
+    // Подсказки по началу слов названия: только id, название и число лайков, без загрузки фильмов
+    public List<Completion> completeFilmTitles(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не может быть пустым");
+        }
+        if (limit < 1 || limit > MAX_COMPLETIONS) {
+            throw new ValidationException("Количество подсказок должно быть от 1 до " + MAX_COMPLETIONS);
+        }
+        return typeahead.completeFilms(prefix, limit);
+    }
+
+    // Фильмы и оценки берутся из индекса совместных лайков, сами фильмы — через кэш
+    public List<FilmRecommendation> getRecommendations(Long userId, int limit) {
+        if (limit < 1 || limit > MAX_RECOMMENDATIONS) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_RECOMMENDATIONS);
+        }
+        userService.getUserById(userId); // Проверка существования пользователя
+        List<CoLikeIndex.Recommendation> recommendations = coLikeIndex.recommend(userId, limit);
+
+        Map<Long, Film> filmsById = new HashMap<>();
+        getFilmsByIds(recommendations.stream().map(CoLikeIndex.Recommendation::filmId).toList())
+                .forEach(film -> filmsById.put(film.getId(), film));
+
+        return recommendations.stream()
+                .filter(recommendation -> filmsById.containsKey(recommendation.filmId()))
+                .map(recommendation -> new FilmRecommendation(filmsById.get(recommendation.filmId()),
+                        recommendation.score()))
                 .collect(Collectors.toList());
     }
 
+    // Порядок сохраняется, отсутствующие фильмы пропускаются
+    public List<Film> getFilmsByIds(List<Long> filmIds) {
+        return filmCache.getAll(filmIds, ids -> {
+            List<Film> films = filmStorage.findByIds(ids);
+            films.forEach(likeWriter::applyPending);
+            return films;
+        });
+    }
+
+    public void validate(Film film) {
+        validateFilm(film);
+        film.setMpa(validateMpa(film.getMpa()));
+        validateGenres(film.getGenres());
+    }
+
     private void validateFilm(Film film) {
         if (film.getReleaseDate().isBefore(CINEMA_BIRTHDAY)) {
             throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
         }
     }
 
-    private void validateMpa(MpaRating mpa) {
+    private MpaRating validateMpa(MpaRating mpa) {
         if (mpa == null || mpa.getId() == null) {
             throw new ValidationException("MPA рейтинг обязателен");
         }
         try {
-            mpaService.getMpaRatingById(mpa.getId());
+            return mpaService.getMpaRatingById(mpa.getId());
         } catch (NotFoundException e) {
             throw new NotFoundException("Указан несуществующий MPA рейтинг");
         }
     }
 
+    // Удаляет повторы по id и подменяет жанры общими экземплярами из справочника
     private void validateGenres(List<Genre> genres) {
         if (genres != null) {
-            List<Genre> uniqueGenres = genres.stream()
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            genres.clear();
-            genres.addAll(uniqueGenres);
+            List<Genre> uniqueGenres = new ArrayList<>();
+            Set<Long> seenIds = new HashSet<>();
 
             for (Genre genre : genres) {
+                if (!seenIds.add(genre.getId())) {
+                    continue;
+                }
                 try {
-                    genreService.getGenreById(genre.getId());
+                    uniqueGenres.add(genreService.getGenreById(genre.getId()));
                 } catch (NotFoundException e) {
                     throw new NotFoundException("Указан несуществующий жанр с id " + genre.getId());
                 }
             }
+
+            genres.clear();
+            genres.addAll(uniqueGenres);
         }
     }
 }
@@ -2,42 +2,48 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Genre;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
 
 @Service
 @Slf4j
 public class GenreService {
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final EntityVersions versions;
+    private final FilmCache filmCache;
+    private final FilmJsonCache filmJsonCache;
 
     @Autowired
-    public GenreService(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public GenreService(ReferenceDataCache referenceDataCache, EntityVersions versions, FilmCache filmCache,
+                        FilmJsonCache filmJsonCache) {
+        this.referenceDataCache = referenceDataCache;
+        this.versions = versions;
+        this.filmCache = filmCache;
+        this.filmJsonCache = filmJsonCache;
     }
 
     public List<Genre> getAllGenres() {
-        String sql = "SELECT * FROM genres ORDER BY genre_id";
-        return jdbcTemplate.query(sql, this::mapRowToGenre);
+        return referenceDataCache.getGenres();
     }
 
     public Genre getGenreById(Long id) {
-        String sql = "SELECT * FROM genres WHERE genre_id = ?";
-        return jdbcTemplate.query(sql, this::mapRowToGenre, id)
-                .stream()
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException("Жанр с id " + id + " не найден"));
+        return referenceDataCache.getGenre(id);
     }
 
-    private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
-        return new Genre(
-                rs.getLong("genre_id"),
-                rs.getString("genre_name")
-        );
+    public void refresh() {
+        if (!referenceDataCache.refresh()) {
+            return;
+        }
+        // Жанры и рейтинг встроены в закэшированные фильмы и их готовый JSON
+        versions.referenceChanged();
+        filmCache.invalidateAll();
+        filmJsonCache.invalidateAll();
+        log.info("Справочник жанров обновлён");
     }
 }
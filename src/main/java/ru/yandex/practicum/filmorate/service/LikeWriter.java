@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Set;
+
+// Запись лайков: true, если состояние лайка изменилось
+public interface LikeWriter {
+    boolean addLike(Long filmId, Long userId);
+
+    boolean removeLike(Long filmId, Long userId);
+
+    // Дополняет прочитанный из хранилища фильм ещё не записанными лайками
+    default Film applyPending(Film film) {
+        return film;
+    }
+
+    // Дополняет прочитанные из хранилища лайки пользователя ещё не записанными
+    default Set<Long> applyPendingLikes(Long userId, Set<Long> filmIds) {
+        return filmIds;
+    }
+
+    // Перечитывает состояние после замены данных в хранилище
+    default void reload() {
+    }
+
+    // Фильмы, у которых есть ещё не записанные изменения лайков
+    default Set<Long> pendingFilmIds() {
+        return Set.of();
+    }
+}
@@ -2,43 +2,48 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
 
 @Service
 @Slf4j
 public class MpaService {
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final EntityVersions versions;
+    private final FilmCache filmCache;
+    private final FilmJsonCache filmJsonCache;
 
     @Autowired
-    public MpaService(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public MpaService(ReferenceDataCache referenceDataCache, EntityVersions versions, FilmCache filmCache,
+                      FilmJsonCache filmJsonCache) {
+        this.referenceDataCache = referenceDataCache;
+        this.versions = versions;
+        this.filmCache = filmCache;
+        this.filmJsonCache = filmJsonCache;
     }
 
     public List<MpaRating> getAllMpaRatings() {
-        String sql = "SELECT * FROM mpa_ratings ORDER BY mpa_id";
-        return jdbcTemplate.query(sql, this::mapRowToMpa);
+        return referenceDataCache.getMpaRatings();
     }
 
     public MpaRating getMpaRatingById(Long id) {
-        String sql = "SELECT * FROM mpa_ratings WHERE mpa_id = ?";
-        return jdbcTemplate.query(sql, this::mapRowToMpa, id)
-                .stream()
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException("MPA рейтинг с id " + id + " не найден"));
+        return referenceDataCache.getMpaRating(id);
     }
 
-    private MpaRating mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
-        return new MpaRating(
-                rs.getLong("mpa_id"),
-                rs.getString("mpa_name"),
-                rs.getString("description")
-        );
+    public void refresh() {
+        if (!referenceDataCache.refresh()) {
+            return;
+        }
+        // Жанры и рейтинг встроены в закэшированные фильмы и их готовый JSON
+        versions.referenceChanged();
+        filmCache.invalidateAll();
+        filmJsonCache.invalidateAll();
+        log.info("Справочник рейтингов MPA обновлён");
     }
 }
@@ -4,64 +4,104 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Completion;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class UserService {
+    static final int MAX_MUTUAL_FRIENDS_BATCH = 100;
+    static final int MAX_SUGGESTIONS = 100;
+    static final int MAX_COMPLETIONS = 20;
+
     private final UserStorage userStorage;
+    private final FriendGraph friendGraph;
+    private final TypeaheadIndex typeahead;
+    private final EntityVersions versions;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, FriendGraph friendGraph,
+                       TypeaheadIndex typeahead, EntityVersions versions) {
         this.userStorage = userStorage;
+        this.friendGraph = friendGraph;
+        this.typeahead = typeahead;
+        this.versions = versions;
     }
 
     public User createUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        return userStorage.create(user);
+        User created = userStorage.create(user);
+        typeahead.putUser(created.getId(), created.getLogin(), created.getFriends().size());
+        return created;
     }
 
     public User updateUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        return userStorage.amend(user);
+        User updated = userStorage.amend(user);
+        versions.userChanged(updated.getId());
+        typeahead.putUser(updated.getId(), updated.getLogin(), friendGraph.friendCount(updated.getId()));
+        return updated;
     }
 
     public List<User> getAllUsers() {
         return userStorage.findAll();
     }
 
+    public Page<User> getUsersPage(String after, int limit) {
+        PageCursor.checkLimit(limit);
+        return PageCursor.toPage(userStorage.findPage(PageCursor.decode(after), limit + 1), limit, User::getId);
+    }
+
     public User getUserById(Long id) {
         return userStorage.find(id);
     }
 
     public void addFriends(Long userId, Long friendId) {
-        User user = userStorage.find(userId);
+        userStorage.find(userId);
         userStorage.find(friendId);
-        user.getFriends().add(friendId);
-        userStorage.amend(user);
+        userStorage.addFriend(userId, friendId);
+        versions.userChanged(userId);
+        friendGraph.addFriend(userId, friendId);
+        typeahead.updateUserFriends(userId, friendGraph.friendCount(userId));
         log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
     }
 
     public void deleteFriends(Long userId, Long friendId) {
-        User user = userStorage.find(userId);
+        userStorage.find(userId);
         userStorage.find(friendId);
-        user.getFriends().remove(friendId);
-        userStorage.amend(user);
+        userStorage.removeFriend(userId, friendId);
+        versions.userChanged(userId);
+        friendGraph.removeFriend(userId, friendId);
+        typeahead.updateUserFriends(userId, friendGraph.friendCount(userId));
         log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
     }
 
     public void deleteUser(Long id) {
         User user = userStorage.find(id);
         userStorage.delete(user);
+        // Каскадно удаляются его лайки и записи в чужих списках друзей
+        versions.userDeleted(id);
+        friendGraph.removeUser(id);
+        typeahead.removeUser(id);
     }
 
     public List<User> getFriends(Long userId) {
@@ -69,13 +109,59 @@ public class UserService {
         return userStorage.getUsersByIds(user.getFriends());
     }
 
-    public List<User> getMutualFriends(Long userId, Long otherId) {
-        User user = userStorage.find(userId);
-        User otherUser = userStorage.find(otherId);
+    // Подсказки по началу логина с весом по числу друзей, без обращения к БД
+    public List<Completion> completeLogins(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не может быть пустым");
+        }
+        if (limit < 1 || limit > MAX_COMPLETIONS) {
+            throw new ValidationException("Количество подсказок должно быть от 1 до " + MAX_COMPLETIONS);
+        }
+        return typeahead.completeUsers(prefix, limit);
+    }
 
-        Set<Long> mutualFriendsIds = new HashSet<>(user.getFriends());
-        mutualFriendsIds.retainAll(otherUser.getFriends());
+    // Кандидаты и число общих друзей берутся из графа в памяти, из БД загружаются только сами кандидаты
+    public List<FriendSuggestion> getFriendSuggestions(Long userId, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new ValidationException("Количество подсказок должно быть от 1 до " + MAX_SUGGESTIONS);
+        }
+        userStorage.find(userId);
+        List<FriendGraph.Suggestion> suggestions = friendGraph.suggest(userId, limit);
+
+        IdSet ids = new IdSet();
+        suggestions.forEach(suggestion -> ids.add(suggestion.userId()));
+        Map<Long, User> usersById = new HashMap<>();
+        userStorage.getUsersByIds(ids).forEach(user -> usersById.put(user.getId(), user));
 
+        return suggestions.stream()
+                .filter(suggestion -> usersById.containsKey(suggestion.userId()))
+                .map(suggestion -> new FriendSuggestion(usersById.get(suggestion.userId()), suggestion.mutualFriends()))
+                .collect(Collectors.toList());
+    }
+
+    // Пересечение считает хранилище, загружаются только сами общие друзья
+    public List<User> getMutualFriends(Long userId, Long otherId) {
+        IdSet mutualFriendsIds = userStorage.findMutualFriendIds(userId, List.of(otherId)).get(otherId);
         return userStorage.getUsersByIds(mutualFriendsIds);
     }
+
+    // Общие друзья с несколькими пользователями сразу: одно пересечение и одна загрузка всех найденных
+    public Map<Long, List<User>> getMutualFriends(Long userId, List<Long> otherIds) {
+        if (otherIds.isEmpty() || otherIds.size() > MAX_MUTUAL_FRIENDS_BATCH) {
+            throw new ValidationException("Количество пользователей должно быть от 1 до " + MAX_MUTUAL_FRIENDS_BATCH);
+        }
+        Map<Long, IdSet> mutualFriendsIds = userStorage.findMutualFriendIds(userId, otherIds);
+
+        IdSet allIds = new IdSet();
+        mutualFriendsIds.values().forEach(allIds::addAll);
+        Map<Long, User> usersById = new HashMap<>();
+        userStorage.getUsersByIds(allIds).forEach(user -> usersById.put(user.getId(), user));
+
+        Map<Long, List<User>> mutualFriends = new LinkedHashMap<>();
+        mutualFriendsIds.forEach((otherId, ids) -> mutualFriends.put(otherId, ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())));
+        return mutualFriends;
+    }
 }
@@ -0,0 +1,326 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*
+ * Отложенная запись лайков. Запрос меняет только состояние в памяти, а фоновый поток пакетами
+ * сбрасывает его в хранилище по размеру или по таймеру. Лайк и его отмена одним пользователем
+ * до сброса схлопываются и не доходят до базы. Запись остаётся в очереди до подтверждения,
+ * поэтому повторный лайк во время сброса видит актуальное состояние без обращения к базе.
+ * Исходное состояние новой записи берётся из копии записанных лайков в памяти, а существование фильма —
+ * из рейтинга популярности, так что лайк не делает запросов к базе до сброса. Копия занимает
+ * по 8 байт на лайк и обновляется самим сбросом.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+public class WriteBehindLikeWriter implements LikeWriter, MeterBinder {
+    private final FilmStorage filmStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final Map<Long, IdSet> persistedLikes = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    // Вложенные карты по фильму не удаляются, их не больше, чем фильмов с лайками
+    private final Map<Long, Map<Long, Pending>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Semaphore capacity;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public WriteBehindLikeWriter(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                                 PopularityLeaderboard leaderboard,
+                                 @Value("${filmorate.likes.write-behind.capacity:100000}") int capacity,
+                                 @Value("${filmorate.likes.write-behind.batch-size:1000}") int batchSize,
+                                 @Value("${filmorate.likes.write-behind.flush-interval:200ms}") Duration flushInterval,
+                                 @Value("${filmorate.likes.write-behind.offer-timeout:1s}") Duration offerTimeout) {
+        this.filmStorage = filmStorage;
+        this.leaderboard = leaderboard;
+        this.capacity = new Semaphore(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        reload();
+        this.flusher = Thread.ofPlatform().name("like-flusher").daemon().start(this::runFlusher);
+    }
+
+    // Данные в хранилище заменены целиком; записи, уже стоящие в очереди, помнят своё исходное состояние
+    @Override
+    public void reload() {
+        Map<Long, IdSet> likes = new HashMap<>();
+        filmStorage.forEachLike((filmId, userId) -> likes.computeIfAbsent(filmId, id -> new IdSet()).add(userId));
+        persistedLikes.clear();
+        persistedLikes.putAll(likes);
+        log.info("Записанные лайки загружены: {} фильмов", likes.size());
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return update(filmId, userId, true);
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        return update(filmId, userId, false);
+    }
+
+    @Override
+    public Film applyPending(Film film) {
+        Map<Long, Pending> filmLikes = pending.get(film.getId());
+        if (filmLikes != null) {
+            filmLikes.forEach((userId, state) -> {
+                synchronized (state) {
+                    if (state.liked) {
+                        film.getLikes().add(userId);
+                    } else {
+                        film.getLikes().remove(userId);
+                    }
+                }
+            });
+        }
+        return film;
+    }
+
+    @Override
+    public Set<Long> applyPendingLikes(Long userId, Set<Long> filmIds) {
+        pending.forEach((filmId, filmLikes) -> {
+            Pending state = filmLikes.get(userId);
+            if (state == null) {
+                return;
+            }
+            synchronized (state) {
+                if (state.liked) {
+                    filmIds.add(filmId);
+                } else {
+                    filmIds.remove(filmId);
+                }
+            }
+        });
+        return filmIds;
+    }
+
+    @Override
+    public Set<Long> pendingFilmIds() {
+        return pending.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private boolean update(Long filmId, Long userId, boolean liked) {
+        Map<Long, Pending> filmLikes = pending.computeIfAbsent(filmId, id -> new ConcurrentHashMap<>());
+        while (true) {
+            Pending state = filmLikes.get(userId);
+            if (state == null) {
+                state = register(filmId, userId, filmLikes);
+            }
+            synchronized (state) {
+                // Запись уже сброшена и убрана из очереди, состояние нужно прочитать заново
+                if (state.detached) {
+                    continue;
+                }
+                if (state.liked == liked) {
+                    return false;
+                }
+                state.liked = liked;
+                if (state.liked == state.persisted) {
+                    coalesced.incrementAndGet();
+                }
+            }
+            if (pendingCount.get() >= batchSize) {
+                wakeUp.release();
+            }
+            return true;
+        }
+    }
+
+    // Новая запись занимает место в очереди; при переполнении ждём сброса, а затем отказываем
+    private Pending register(Long filmId, Long userId, Map<Long, Pending> filmLikes) {
+        if (!leaderboard.contains(filmId)) {
+            throw new NotFoundException("Фильм с id " + filmId + " не найден");
+        }
+        boolean persisted = isPersisted(filmId, userId);
+        if (!capacity.tryAcquire()) {
+            wakeUp.release();
+            try {
+                if (!capacity.tryAcquire(offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                    throw new ServiceUnavailableException("Очередь лайков переполнена");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Очередь лайков переполнена");
+            }
+        }
+
+        Pending created = new Pending(persisted);
+        Pending existing = filmLikes.putIfAbsent(userId, created);
+        if (existing != null) {
+            capacity.release();
+            return existing;
+        }
+        pendingCount.incrementAndGet();
+        return created;
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                wakeUp.tryAcquire(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                wakeUp.drainPermits();
+                while (running && flush() >= batchSize) {
+                    // Очередь заполнена больше чем на пакет, сбрасываем без паузы
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи пакета лайков, повтор при следующем сбросе", e);
+            }
+        }
+    }
+
+    // Записывает до batchSize изменений и возвращает их число
+    int flush() {
+        List<Pending> states = new ArrayList<>();
+        List<LikeChange> changes = new ArrayList<>();
+        for (Map.Entry<Long, Map<Long, Pending>> film : pending.entrySet()) {
+            for (Map.Entry<Long, Pending> entry : film.getValue().entrySet()) {
+                if (changes.size() >= batchSize) {
+                    break;
+                }
+                Pending state = entry.getValue();
+                synchronized (state) {
+                    if (state.liked == state.persisted) {
+                        detach(film.getValue(), entry.getKey(), state);
+                    } else {
+                        states.add(state);
+                        changes.add(new LikeChange(film.getKey(), entry.getKey(), state.liked));
+                    }
+                }
+            }
+        }
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        filmStorage.applyLikeChanges(changes);
+        flushed.addAndGet(changes.size());
+
+        for (int i = 0; i < states.size(); i++) {
+            Pending state = states.get(i);
+            LikeChange change = changes.get(i);
+            synchronized (state) {
+                state.persisted = change.isLiked();
+                // Копия обновляется до отсоединения записи: следующий register уже увидит новое состояние
+                recordPersisted(change);
+                if (state.liked == state.persisted) {
+                    detach(pending.get(change.getFilmId()), change.getUserId(), state);
+                }
+            }
+        }
+        return changes.size();
+    }
+
+    private boolean isPersisted(Long filmId, Long userId) {
+        IdSet users = persistedLikes.get(filmId);
+        if (users == null) {
+            return false;
+        }
+        synchronized (users) {
+            return users.contains(userId.longValue());
+        }
+    }
+
+    private void recordPersisted(LikeChange change) {
+        IdSet users = persistedLikes.computeIfAbsent(change.getFilmId(), id -> new IdSet());
+        synchronized (users) {
+            if (change.isLiked()) {
+                users.add(change.getUserId());
+            } else {
+                users.remove(change.getUserId());
+            }
+        }
+    }
+
+    private void detach(Map<Long, Pending> filmLikes, Long userId, Pending state) {
+        state.detached = true;
+        filmLikes.remove(userId, state);
+        pendingCount.decrementAndGet();
+        capacity.release();
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    // Веб-сервер к этому моменту уже остановлен, новых лайков не будет
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Поток не прерываем: прерывание посреди JDBC-вызова закрывает файловое хранилище H2
+        running = false;
+        wakeUp.release();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        int total = 0;
+        int written;
+        while ((written = flush()) > 0) {
+            total += written;
+        }
+        log.info("Очередь лайков сброшена при остановке: {} изменений", total);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.likes.pending", pendingCount, AtomicInteger::get)
+                .description("Likes waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.flushed", flushed, AtomicLong::get)
+                .description("Like changes written in batches")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.coalesced", coalesced, AtomicLong::get)
+                .description("Like/unlike pairs cancelled before reaching the database")
+                .register(registry);
+    }
+
+    private static class Pending {
+        private boolean persisted;
+        private boolean liked;
+        private boolean detached;
+
+        Pending(boolean persisted) {
+            this.persisted = persisted;
+            this.liked = persisted;
+        }
+    }
+}
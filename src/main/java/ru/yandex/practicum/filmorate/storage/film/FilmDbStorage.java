@@ -2,33 +2,47 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Profile("db")
 @Component
 @Primary
 public class FilmDbStorage implements FilmStorage {
+    // Больше id в одном IN не передаётся: запрос findAll по большому каталогу не растёт до десятков тысяч параметров
+    private static final int IN_CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
     }
 
     @Override
+    @Transactional
     public Film create(Film film) {
+        resolveReferences(film);
         String sqlQuery = "INSERT INTO films (title, description, release_date, duration, mpa_id) " +
                 "VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -45,7 +59,56 @@ public class FilmDbStorage implements FilmStorage {
 
         Long filmId = Objects.requireNonNull(keyHolder.getKey()).longValue();
         insertFilmGenres(filmId, film.getGenres());
-        return find(filmId);
+
+        // Ответ собирается из уже имеющихся данных, у нового фильма ещё нет лайков
+        film.setId(filmId);
+        film.setLikes(new IdSet());
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<Long> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return Collections.emptyList();
+        }
+        films.forEach(this::resolveReferences);
+
+        String sqlQuery = "INSERT INTO films (title, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sqlQuery, new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement stmt, int i) throws SQLException {
+                        Film film = films.get(i);
+                        stmt.setString(1, film.getName());
+                        stmt.setString(2, film.getDescription());
+                        stmt.setDate(3, java.sql.Date.valueOf(film.getReleaseDate()));
+                        stmt.setInt(4, film.getDuration());
+                        stmt.setInt(5, film.getMpa().getId().intValue());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Long> filmIds = keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .collect(Collectors.toList());
+
+        List<Object[]> genreRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(filmIds.get(i));
+            for (Genre genre : films.get(i).getGenres()) {
+                genreRows.add(new Object[]{filmIds.get(i), genre.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genreRows);
+        return filmIds;
     }
 
     @Override
@@ -55,17 +118,12 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional
     public Film amend(Film film) {
-        String sqlCheck = "SELECT COUNT(*) FROM films WHERE film_id = ?";
-        int count = jdbcTemplate.queryForObject(sqlCheck, Integer.class, film.getId());
-
-        if (count == 0) {
-            throw new NotFoundException("Film not found");
-        }
-
+        resolveReferences(film);
         String sqlQuery = "UPDATE films SET title = ?, description = ?, release_date = ?, duration = ?, " +
                 "mpa_id = ? WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery,
+        int updated = jdbcTemplate.update(sqlQuery,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
@@ -73,26 +131,186 @@ public class FilmDbStorage implements FilmStorage {
                 film.getMpa().getId(),
                 film.getId());
 
+        if (updated == 0) {
+            throw new NotFoundException("Film not found");
+        }
+
         updateFilmGenres(film);
-        updateFilmLikes(film);
-        return find(film.getId());
+        // Лайки не меняются при обновлении, поэтому из БД дочитываются только они
+        film.setLikes(getLikes(film.getId()));
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
+        String insertQuery = "INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT film_id, ? FROM films WHERE film_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(insertQuery, userId, filmId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос уже поставил этот лайк
+            return false;
+        }
+
+        if (inserted == 0) {
+            checkFilmExists(filmId);
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?", filmId);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
+        String deleteQuery = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+        if (jdbcTemplate.update(deleteQuery, filmId, userId) == 0) {
+            checkFilmExists(filmId);
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?", filmId);
+        return true;
+    }
+
+    // Пакетная запись накопленных лайков; строки для удалённых фильмов и пользователей пропускаются
+    @Override
+    @Transactional
+    public void applyLikeChanges(Collection<LikeChange> changes) {
+        List<LikeChange> added = new ArrayList<>();
+        List<LikeChange> removed = new ArrayList<>();
+        changes.forEach(change -> (change.isLiked() ? added : removed).add(change));
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        String insertQuery = "INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT f.film_id, u.user_id FROM films f JOIN users u ON u.user_id = ? WHERE f.film_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+        int[] inserted = jdbcTemplate.batchUpdate(insertQuery, added.stream()
+                .map(c -> new Object[]{c.getUserId(), c.getFilmId(), c.getFilmId(), c.getUserId()})
+                .collect(Collectors.toList()));
+        collectDeltas(deltas, added, inserted, 1);
+
+        String deleteQuery = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+        int[] deleted = jdbcTemplate.batchUpdate(deleteQuery, removed.stream()
+                .map(c -> new Object[]{c.getFilmId(), c.getUserId()})
+                .collect(Collectors.toList()));
+        collectDeltas(deltas, removed, deleted, -1);
+
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?",
+                deltas.entrySet().stream()
+                        .filter(entry -> entry.getValue() != 0)
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .collect(Collectors.toList()));
+    }
+
+    private static void collectDeltas(Map<Long, Integer> deltas, List<LikeChange> changes, int[] affected, int sign) {
+        for (int i = 0; i < affected.length; i++) {
+            if (affected[i] > 0) {
+                deltas.merge(changes.get(i).getFilmId(), sign, Integer::sum);
+            }
+        }
     }
 
     @Override
     public List<Film> findAll() {
-        String sqlQuery = "SELECT * FROM films";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
+        String sqlQuery = "SELECT * FROM films ORDER BY film_id";
+        return hydrate(jdbcTemplate.query(sqlQuery, this::mapRowToFilm));
+    }
+
+    @Override
+    public List<Film> findPage(Long afterId, int limit) {
+        String sqlQuery = "SELECT * FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?";
+        return hydrate(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, afterId, limit));
+    }
+
+    // Читает фильмы курсором и передаёт их потребителю гидратированными порциями по batchSize
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(int batchSize, Consumer<List<Film>> consumer) {
+        String sqlQuery = "SELECT * FROM films ORDER BY film_id";
+        List<Film> batch = new ArrayList<>(batchSize);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(batchSize);
+            return stmt;
+        }, rs -> {
+            batch.add(mapRowToFilm(rs, 0));
+            if (batch.size() >= batchSize) {
+                consumer.accept(hydrate(new ArrayList<>(batch)));
+                batch.clear();
+            }
+        });
+
+        if (!batch.isEmpty()) {
+            consumer.accept(hydrate(batch));
+        }
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        String sqlQuery = "SELECT * FROM films ORDER BY likes_count DESC, film_id LIMIT ?";
+        return hydrate(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, count));
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Object[] chunk : chunks(List.copyOf(ids))) {
+            String sqlQuery = "SELECT * FROM films WHERE film_id IN (" + placeholders(chunk.length) + ")";
+            films.addAll(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, chunk));
+        }
+        Map<Long, Film> filmsById = hydrate(films)
+                .stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Long, Integer> findLikeCounts() {
+        // Счётчик поддерживается в одной транзакции с film_likes, пересчитывать лайки не нужно
+        String sqlQuery = "SELECT film_id, likes_count FROM films";
+        Map<Long, Integer> likeCounts = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, rs -> {
+            likeCounts.put(rs.getLong("film_id"), rs.getInt("likes_count"));
+        });
+        return likeCounts;
+    }
+
+    @Override
+    public List<Long> findLikedFilmIds(Long userId) {
+        String sqlQuery = "SELECT film_id FROM film_likes WHERE user_id = ? ORDER BY film_id";
+        return jdbcTemplate.queryForList(sqlQuery, Long.class, userId);
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        String sqlQuery = "SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            consumer.accept(rs.getLong("film_id"), rs.getLong("user_id"));
+        });
     }
 
     @Override
     public Film find(Long id) {
         String sqlQuery = "SELECT * FROM films WHERE film_id = ?";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, id)
+        return hydrate(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, id))
                 .stream()
                 .findFirst()
                 .orElseThrow(() -> new NotFoundException("Film not found"));
     }
 
+    // Маппинг только базовых полей фильма, связанные данные подгружаются в hydrate
     private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
         Film film = new Film();
         film.setId(rs.getLong("film_id"));
@@ -100,32 +318,80 @@ public class FilmDbStorage implements FilmStorage {
         film.setDescription(rs.getString("description"));
         film.setReleaseDate(rs.getDate("release_date").toLocalDate());
         film.setDuration(rs.getInt("duration"));
-        film.setLikes(getLikes(film.getId()));
-        film.setGenres(getGenres(film.getId()));
-        film.setMpa(getMpaRatingById(rs.getLong("mpa_id")));
+        film.setMpa(new MpaRating(rs.getLong("mpa_id"), null, null));
         return film;
     }
 
-    private MpaRating getMpaRatingById(Long id) {
-        String sqlQuery = "SELECT * FROM mpa_ratings WHERE mpa_id = ?";
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) ->
-                        new MpaRating(rs.getLong("mpa_id"), rs.getString("mpa_name"), rs.getString("description")), id)
-                .stream()
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException("MPA rating not found"));
+    // Заполняет лайки и жанры для всего списка фильмов двумя запросами на каждые IN_CHUNK_SIZE фильмов
+    private List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+
+        Map<Long, Film> filmsById = new LinkedHashMap<>();
+        films.forEach(film -> filmsById.put(film.getId(), film));
+        for (Object[] filmIds : chunks(List.copyOf(filmsById.keySet()))) {
+            String placeholders = placeholders(filmIds.length);
+
+            String likesQuery = "SELECT film_id, user_id FROM film_likes WHERE film_id IN (" + placeholders + ") " +
+                    "ORDER BY film_id, user_id";
+            jdbcTemplate.query(likesQuery, rs -> {
+                filmsById.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+            }, filmIds);
+
+            String genresQuery = "SELECT film_id, genre_id FROM film_genres " +
+                    "WHERE film_id IN (" + placeholders + ") " +
+                    "ORDER BY film_id, genre_id";
+            jdbcTemplate.query(genresQuery, rs -> {
+                filmsById.get(rs.getLong("film_id")).getGenres()
+                        .add(referenceDataCache.getGenre(rs.getLong("genre_id")));
+            }, filmIds);
+        }
+
+        // Жанры и MPA берутся из кэша справочников, без обращения к таблицам genres и mpa_ratings
+        films.forEach(film -> film.setMpa(referenceDataCache.getMpaRating(film.getMpa().getId())));
+        return films;
     }
 
-    private List<Genre> getGenres(Long filmId) {
-        String sqlQuery = "SELECT g.genre_id, g.genre_name FROM film_genres fg " +
-                "JOIN genres g ON fg.genre_id = g.genre_id " +
-                "WHERE fg.film_id = ?";
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) ->
-                new Genre(rs.getLong("genre_id"), rs.getString("genre_name")), filmId);
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
     }
 
-    private Set<Long> getLikes(Long filmId) {
-        String sqlQuery = "SELECT user_id FROM film_likes WHERE film_id = ?";
-        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Long.class, filmId));
+    private static List<Object[]> chunks(List<Long> ids) {
+        List<Object[]> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size())).toArray());
+        }
+        return chunks;
+    }
+
+    // Подставляет общие экземпляры MPA и жанров из справочника, убирает повторы жанров
+    private void resolveReferences(Film film) {
+        film.setMpa(referenceDataCache.getMpaRating(film.getMpa().getId()));
+        List<Genre> genres = film.getGenres() == null ? List.of() : film.getGenres();
+        film.setGenres(genres.stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .map(referenceDataCache::getGenre)
+                .collect(Collectors.toCollection(ArrayList::new)));
+    }
+
+    // Сортировка в запросе: IdSet дописывает возрастающие id в конец без сдвигов
+    private IdSet getLikes(Long filmId) {
+        String sqlQuery = "SELECT user_id FROM film_likes WHERE film_id = ? ORDER BY user_id";
+        IdSet likes = new IdSet();
+        jdbcTemplate.query(sqlQuery, rs -> {
+            likes.add(rs.getLong("user_id"));
+        }, filmId);
+        return likes;
+    }
+
+    private void checkFilmExists(Long filmId) {
+        String sqlQuery = "SELECT EXISTS(SELECT 1 FROM films WHERE film_id = ?)";
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, filmId))) {
+            throw new NotFoundException("Film not found");
+        }
     }
 
     private void insertFilmGenres(Long filmId, List<Genre> genres) {
@@ -134,28 +400,14 @@ public class FilmDbStorage implements FilmStorage {
         }
 
         String sqlQuery = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-        genres.forEach(genre -> jdbcTemplate.update(sqlQuery, filmId, genre.getId()));
+        jdbcTemplate.batchUpdate(sqlQuery, genres.stream()
+                .map(genre -> new Object[]{filmId, genre.getId()})
+                .collect(Collectors.toList()));
     }
 
     private void updateFilmGenres(Film film) {
         String deleteQuery = "DELETE FROM film_genres WHERE film_id = ?";
         jdbcTemplate.update(deleteQuery, film.getId());
-
-        // Удаляем дубликаты перед вставкой
-        List<Genre> uniqueGenres = film.getGenres().stream()
-                .distinct()
-                .collect(Collectors.toList());
-
-        insertFilmGenres(film.getId(), uniqueGenres);
-    }
-
-    private void updateFilmLikes(Film film) {
-        String deleteQuery = "DELETE FROM film_likes WHERE film_id = ?";
-        jdbcTemplate.update(deleteQuery, film.getId());
-
-        if (film.getLikes() != null && !film.getLikes().isEmpty()) {
-            String insertQuery = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
-            film.getLikes().forEach(userId -> jdbcTemplate.update(insertQuery, film.getId(), userId));
-        }
+        insertFilmGenres(film.getId(), film.getGenres());
     }
 }
@@ -1,17 +1,49 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<Long> createAll(List<Film> films);
+
     void delete(Film film);
 
     Film amend(Film film);
 
+    boolean addLike(Long filmId, Long userId);
+
+    boolean removeLike(Long filmId, Long userId);
+
+    void applyLikeChanges(Collection<LikeChange> changes);
+
     List<Film> findAll();
 
+    List<Film> findPage(Long afterId, int limit);
+
+    void streamAll(int batchSize, Consumer<List<Film>> consumer);
+
+    List<Film> findPopular(int count);
+
+    List<Film> findByIds(Collection<Long> ids);
+
+    Map<Long, Integer> findLikeCounts();
+
+    // Фильмы, которые лайкнул пользователь, по возрастанию id
+    List<Long> findLikedFilmIds(Long userId);
+
+    // Все лайки по возрастанию film_id и user_id, без загрузки фильмов
+    void forEachLike(LikeConsumer consumer);
+
     Film find(Long id);
+
+    interface LikeConsumer {
+        void accept(long filmId, long userId);
+    }
 }
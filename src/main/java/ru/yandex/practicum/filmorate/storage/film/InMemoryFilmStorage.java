@@ -4,52 +4,242 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
-
+/*
+ * Потокобезопасное хранилище: фильмы и лайки лежат в ConcurrentHashMap, id выдаёт AtomicLong.
+ * Лайки хранятся отдельно от фильмов в компактных IdSet, поэтому не теряются при одновременном amend.
+ * Каждое множество защищено собственным монитором: блокировка берётся на один фильм, а не на всё хранилище.
+ * Наружу отдаются только копии, так что вызывающий код не может изменить хранилище в обход методов.
+ */
 @Profile("memory")
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
-    private final HashMap<Long, Film> films = new HashMap<>();
-    private Long id = 1L;
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    private final Map<Long, IdSet> likes = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong(1);
     private static final String WRONG_ID = "нет фильма с таким id";
 
     @Override
     public List<Film> findAll() {
-        return new ArrayList<>(films.values());
+        return films.values().stream()
+                .map(this::snapshot)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findPage(Long afterId, int limit) {
+        return films.keySet().stream()
+                .filter(id -> id > afterId)
+                .sorted()
+                .map(this::snapshot)
+                .filter(Objects::nonNull)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAll(int batchSize, Consumer<List<Film>> consumer) {
+        List<Film> all = findAll();
+        for (int from = 0; from < all.size(); from += batchSize) {
+            consumer.accept(all.subList(from, Math.min(from + batchSize, all.size())));
+        }
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        // Размеры фиксируются до сортировки: компаратор по меняющимся значениям нарушает свой контракт
+        return findLikeCounts().entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(entry -> snapshot(entry.getKey()))
+                .filter(Objects::nonNull)
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Long> ids) {
+        return ids.stream()
+                .map(this::snapshot)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Long, Integer> findLikeCounts() {
+        return likes.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> sizeOf(entry.getValue())));
+    }
+
+    @Override
+    public List<Long> findLikedFilmIds(Long userId) {
+        List<Long> filmIds = new ArrayList<>();
+        for (Long filmId : new TreeSet<>(likes.keySet())) {
+            IdSet filmLikes = likes.get(filmId);
+            if (filmLikes == null) {
+                continue;
+            }
+            synchronized (filmLikes) {
+                if (filmLikes.contains(userId.longValue())) {
+                    filmIds.add(filmId);
+                }
+            }
+        }
+        return filmIds;
+    }
+
+    @Override
+    public void forEachLike(LikeConsumer consumer) {
+        for (Long filmId : new TreeSet<>(likes.keySet())) {
+            IdSet filmLikes = likes.get(filmId);
+            if (filmLikes == null) {
+                continue;
+            }
+            long[] userIds;
+            synchronized (filmLikes) {
+                userIds = filmLikes.toLongArray();
+            }
+            for (long userId : userIds) {
+                consumer.accept(filmId, userId);
+            }
+        }
     }
 
     @Override
     public Film find(Long id) {
-        if (!films.containsKey(id)) {
+        Film film = snapshot(id);
+        if (film == null) {
             throw new NotFoundException(WRONG_ID);
         }
-        return films.get(id);
+        return film;
     }
 
     @Override
     public Film create(Film film) {
-        film.setId(id++);
-        films.put(film.getId(), film);
+        film.setId(ids.getAndIncrement());
+        likes.put(film.getId(), film.getLikes() == null ? new IdSet() : new IdSet(film.getLikes()));
+        films.put(film.getId(), copy(film, null));
         return film;
     }
 
+    @Override
+    public List<Long> createAll(List<Film> films) {
+        return films.stream()
+                .map(film -> create(film).getId())
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Film amend(Film film) {
-        if (!films.containsKey(film.getId())) {
+        // Лайки меняются только через addLike/removeLike
+        IdSet filmLikes = likes.get(film.getId());
+        if (filmLikes == null || films.replace(film.getId(), copy(film, null)) == null) {
             throw new NotFoundException(WRONG_ID);
         }
-        films.put(film.getId(), film);
+        film.setLikes(copyOf(filmLikes));
         return film;
     }
 
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        IdSet filmLikes = likesOf(filmId);
+        synchronized (filmLikes) {
+            return filmLikes.add(userId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        IdSet filmLikes = likesOf(filmId);
+        synchronized (filmLikes) {
+            return filmLikes.remove(userId);
+        }
+    }
+
+    // Лайки удалённых за время ожидания фильмов пропускаются
+    @Override
+    public void applyLikeChanges(Collection<LikeChange> changes) {
+        for (LikeChange change : changes) {
+            IdSet filmLikes = likes.get(change.getFilmId());
+            if (filmLikes == null) {
+                continue;
+            }
+            synchronized (filmLikes) {
+                if (change.isLiked()) {
+                    filmLikes.add(change.getUserId());
+                } else {
+                    filmLikes.remove(change.getUserId());
+                }
+            }
+        }
+    }
+
     @Override
     public void delete(Film film) {
-        if (!films.containsKey(film.getId())) {
+        if (films.remove(film.getId()) == null) {
+            throw new NotFoundException(WRONG_ID);
+        }
+        likes.remove(film.getId());
+    }
+
+    private IdSet likesOf(Long filmId) {
+        IdSet filmLikes = likes.get(filmId);
+        if (filmLikes == null) {
             throw new NotFoundException(WRONG_ID);
         }
-        films.remove(film.getId());
+        return filmLikes;
+    }
+
+    private Film snapshot(Long id) {
+        Film film = films.get(id);
+        return film == null ? null : snapshot(film);
+    }
+
+    private Film snapshot(Film film) {
+        IdSet filmLikes = likes.get(film.getId());
+        // Фильм удалён между чтением из films и likes
+        if (filmLikes == null) {
+            return null;
+        }
+        return copy(film, copyOf(filmLikes));
+    }
+
+    private static int sizeOf(IdSet filmLikes) {
+        synchronized (filmLikes) {
+            return filmLikes.size();
+        }
+    }
+
+    private static IdSet copyOf(IdSet filmLikes) {
+        synchronized (filmLikes) {
+            return new IdSet(filmLikes);
+        }
+    }
+
+    // Хранимая копия фильма лайков не содержит, они лежат в likes
+    private static Film copy(Film source, IdSet likes) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setMpa(source.getMpa());
+        film.setGenres(source.getGenres() == null ? null : new ArrayList<>(source.getGenres()));
+        film.setLikes(likes == null ? new IdSet() : likes);
+        return film;
     }
 }
@@ -3,72 +3,189 @@ package ru.yandex.practicum.filmorate.storage.user;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.IdSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/*
+ * Как и InMemoryFilmStorage: ConcurrentHashMap, AtomicLong для id и отдельные IdSet друзей
+ * с блокировкой на одного пользователя. find и остальные методы чтения возвращают копии.
+ */
 @Profile("memory")
 @Component
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private Long id = 1L;
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final Map<Long, IdSet> friends = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong(1);
     private static final String WRONG_ID = "неверный номер ID";
 
     @Override
     public List<User> findAll() {
-        return new ArrayList<>(users.values());
+        return users.values().stream()
+                .map(this::snapshot)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return users.keySet().stream()
+                .filter(id -> id > afterId)
+                .sorted()
+                .map(this::snapshot)
+                .filter(Objects::nonNull)
+                .limit(limit)
+                .collect(Collectors.toList());
     }
 
     @Override
     public List<User> getUsersByIds(Set<Long> ids) {
         return ids.stream()
-                .filter(users::containsKey)
-                .map(users::get)
+                .map(this::snapshot)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    // Пересечение слиянием отсортированных IdSet, без копирования друзей в HashSet
+    @Override
+    public Map<Long, IdSet> findMutualFriendIds(Long userId, Collection<Long> otherIds) {
+        IdSet userFriends = friendsOf(userId);
+        Map<Long, IdSet> mutualFriends = new LinkedHashMap<>();
+        for (Long otherId : otherIds) {
+            IdSet otherFriends = friendsOf(otherId);
+            IdSet mutual;
+            synchronized (userFriends) {
+                mutual = new IdSet(userFriends);
+            }
+            synchronized (otherFriends) {
+                mutual.retainAll(otherFriends);
+            }
+            mutualFriends.put(otherId, mutual);
+        }
+        return mutualFriends;
+    }
+
+    @Override
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        for (Long userId : new TreeSet<>(friends.keySet())) {
+            IdSet userFriends = friends.get(userId);
+            if (userFriends == null) {
+                continue;
+            }
+            long[] friendIds;
+            synchronized (userFriends) {
+                friendIds = userFriends.toLongArray();
+            }
+            for (long friendId : friendIds) {
+                consumer.accept(userId, friendId);
+            }
+        }
+    }
+
     @Override
     public User create(User user) {
-        user.setId(id++);
+        user.setId(ids.getAndIncrement());
         user.setName(checkAndReturnName(user));
-        users.put(user.getId(), user);
+        friends.put(user.getId(), user.getFriends() == null ? new IdSet() : new IdSet(user.getFriends()));
+        users.put(user.getId(), copy(user, null));
         return user;
     }
 
+    // Как и UserDbStorage, amend не трогает друзей: в ответ идут сохранённые, а не переданные в запросе
     @Override
     public User amend(User user) {
-        if (!users.containsKey(user.getId())) {
+        user.setName(checkAndReturnName(user));
+        if (users.replace(user.getId(), copy(user, null)) == null) {
             throw new NotFoundException(WRONG_ID);
         }
-        user.setName(checkAndReturnName(user));
-        users.put(user.getId(), user);
+        IdSet userFriends = friendsOf(user.getId());
+        synchronized (userFriends) {
+            user.setFriends(new IdSet(userFriends));
+        }
         return user;
     }
 
+    @Override
+    public boolean addFriend(Long userId, Long friendId) {
+        IdSet userFriends = friendsOf(userId);
+        synchronized (userFriends) {
+            return userFriends.add(friendId);
+        }
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        IdSet userFriends = friendsOf(userId);
+        synchronized (userFriends) {
+            return userFriends.remove(friendId);
+        }
+    }
+
     @Override
     public void delete(User user) {
-        if (!users.containsKey(user.getId())) {
+        if (users.remove(user.getId()) == null) {
             throw new NotFoundException(WRONG_ID);
         }
+        friends.remove(user.getId());
 
         // Удаляем пользователя из списков друзей всех других пользователей
-        for (User u : users.values()) {
-            u.getFriends().remove(user.getId());
+        for (IdSet userFriends : friends.values()) {
+            synchronized (userFriends) {
+                userFriends.remove(user.getId());
+            }
         }
-
-        users.remove(user.getId());
     }
 
     @Override
     public User find(Long id) {
-        if (!users.containsKey(id)) {
+        User user = snapshot(id);
+        if (user == null) {
+            throw new NotFoundException(WRONG_ID);
+        }
+        return user;
+    }
+
+    private IdSet friendsOf(Long userId) {
+        IdSet userFriends = friends.get(userId);
+        if (userFriends == null) {
             throw new NotFoundException(WRONG_ID);
         }
-        return users.get(id);
+        return userFriends;
+    }
+
+    private User snapshot(Long id) {
+        User user = users.get(id);
+        return user == null ? null : snapshot(user);
+    }
+
+    private User snapshot(User user) {
+        IdSet userFriends = friends.get(user.getId());
+        // Пользователь удалён между чтением из users и friends
+        if (userFriends == null) {
+            return null;
+        }
+        synchronized (userFriends) {
+            return copy(user, new IdSet(userFriends));
+        }
+    }
+
+    // Хранимая копия пользователя друзей не содержит, они лежат в friends
+    private static User copy(User source, IdSet friends) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setEmail(source.getEmail());
+        user.setLogin(source.getLogin());
+        user.setName(source.getName());
+        user.setBirthday(source.getBirthday());
+        user.setFriends(friends == null ? new IdSet() : friends);
+        return user;
     }
 
     private String checkAndReturnName(User user) {
         return (user.getName() == null || user.getName().isBlank()) ? user.getLogin() : user.getName();
     }
-}
\ No newline at end of file
+}
@@ -5,7 +5,9 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.IdSet;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.PreparedStatement;
@@ -16,6 +18,9 @@ import java.util.*;
 @Profile("db")
 @Component
 public class UserDbStorage implements UserStorage {
+    // Больше id в одном IN не передаётся, как и в FilmDbStorage
+    private static final int IN_CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     public UserDbStorage(JdbcTemplate jdbcTemplate) {
@@ -23,6 +28,7 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public User create(User user) {
         String name = (user.getName() == null || user.getName().isBlank()) ? user.getLogin() : user.getName();
 
@@ -38,35 +44,57 @@ public class UserDbStorage implements UserStorage {
             return stmt;
         }, keyHolder);
 
-        Long userId = Objects.requireNonNull(keyHolder.getKey()).longValue();
-        return find(userId);
+        // Ответ собирается из уже имеющихся данных, дружбы при создании не сохраняются
+        user.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        user.setName(name);
+        user.setFriends(new IdSet());
+        return user;
     }
 
     @Override
+    @Transactional
     public User amend(User user) {
-        String sqlCheck = "SELECT COUNT(*) FROM users WHERE user_id = ?";
-        int count = jdbcTemplate.queryForObject(sqlCheck, Integer.class, user.getId());
-
-        if (count == 0) {
-            throw new NotFoundException("User not found");
-        }
-
         String name = (user.getName() == null || user.getName().isBlank()) ? user.getLogin() : user.getName();
 
         String sqlQuery = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?";
-        jdbcTemplate.update(sqlQuery,
+        int updated = jdbcTemplate.update(sqlQuery,
                 user.getEmail(),
                 user.getLogin(),
                 name,
                 user.getBirthday(),
                 user.getId());
 
-        updateFriendships(user);
-        return find(user.getId());
+        if (updated == 0) {
+            throw new NotFoundException("User not found");
+        }
+
+        // Дружбы меняются только через addFriend/removeFriend, в ответ идут сохранённые
+        user.setName(name);
+        user.setFriends(new IdSet(jdbcTemplate.queryForList(
+                "SELECT friend_id FROM friendships WHERE user_id = ?", Long.class, user.getId())));
+        return user;
     }
 
     @Override
+    public boolean addFriend(Long userId, Long friendId) {
+        String sqlQuery = "INSERT INTO friendships (user_id, friend_id, status) SELECT ?, ?, 'pending' " +
+                "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+        return jdbcTemplate.update(sqlQuery, userId, friendId, userId, friendId) > 0;
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        String sqlQuery = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
+        return jdbcTemplate.update(sqlQuery, userId, friendId) > 0;
+    }
+
+    @Override
+    @Transactional
     public void delete(User user) {
+        // Лайки пользователя удалятся каскадом, счётчики фильмов нужно уменьшить заранее
+        String likesQuery = "UPDATE films SET likes_count = likes_count - 1 " +
+                "WHERE film_id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+        jdbcTemplate.update(likesQuery, user.getId());
         String sqlQuery = "DELETE FROM users WHERE user_id = ?";
         jdbcTemplate.update(sqlQuery, user.getId());
     }
@@ -74,7 +102,7 @@ public class UserDbStorage implements UserStorage {
     @Override
     public User find(Long id) {
         String sqlQuery = "SELECT * FROM users WHERE user_id = ?";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, id)
+        return hydrate(jdbcTemplate.query(sqlQuery, this::mapRowToUser, id))
                 .stream()
                 .findFirst()
                 .orElseThrow(() -> new NotFoundException("User not found"));
@@ -82,8 +110,14 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public List<User> findAll() {
-        String sqlQuery = "SELECT * FROM users";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToUser);
+        String sqlQuery = "SELECT * FROM users ORDER BY user_id";
+        return hydrate(jdbcTemplate.query(sqlQuery, this::mapRowToUser));
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        String sqlQuery = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return hydrate(jdbcTemplate.query(sqlQuery, this::mapRowToUser, afterId, limit));
     }
 
     @Override
@@ -92,9 +126,52 @@ public class UserDbStorage implements UserStorage {
             return Collections.emptyList();
         }
 
-        String sqlQuery = "SELECT * FROM users WHERE user_id IN (" +
-                String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, ids.toArray());
+        List<User> users = new ArrayList<>(ids.size());
+        for (Object[] chunk : chunks(List.copyOf(ids))) {
+            String sqlQuery = "SELECT * FROM users WHERE user_id IN (" + placeholders(chunk.length) + ")";
+            users.addAll(jdbcTemplate.query(sqlQuery, this::mapRowToUser, chunk));
+        }
+        return hydrate(users);
+    }
+
+    // Общие друзья считаются самосоединением friendships, списки друзей самих пользователей не загружаются
+    @Override
+    public Map<Long, IdSet> findMutualFriendIds(Long userId, Collection<Long> otherIds) {
+        Set<Long> ids = new HashSet<>(otherIds);
+        ids.add(userId);
+        int found = 0;
+        for (Object[] chunk : chunks(List.copyOf(ids))) {
+            String countQuery = "SELECT COUNT(*) FROM users WHERE user_id IN (" + placeholders(chunk.length) + ")";
+            Integer count = jdbcTemplate.queryForObject(countQuery, Integer.class, chunk);
+            found += count == null ? 0 : count;
+        }
+        if (found != ids.size()) {
+            throw new NotFoundException("User not found");
+        }
+
+        Map<Long, IdSet> mutualFriends = new LinkedHashMap<>();
+        otherIds.forEach(otherId -> mutualFriends.put(otherId, new IdSet()));
+        for (Object[] chunk : chunks(List.copyOf(mutualFriends.keySet()))) {
+            Object[] params = new Object[chunk.length + 1];
+            params[0] = userId;
+            System.arraycopy(chunk, 0, params, 1, chunk.length);
+            String sqlQuery = "SELECT f2.user_id AS other_id, f1.friend_id FROM friendships f1 " +
+                    "JOIN friendships f2 ON f2.friend_id = f1.friend_id " +
+                    "WHERE f1.user_id = ? AND f2.user_id IN (" + placeholders(chunk.length) + ") " +
+                    "ORDER BY f2.user_id, f1.friend_id";
+            jdbcTemplate.query(sqlQuery, rs -> {
+                mutualFriends.get(rs.getLong("other_id")).add(rs.getLong("friend_id"));
+            }, params);
+        }
+        return mutualFriends;
+    }
+
+    @Override
+    public void forEachFriendship(FriendshipConsumer consumer) {
+        String sqlQuery = "SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id";
+        jdbcTemplate.query(sqlQuery, rs -> {
+            consumer.accept(rs.getLong("user_id"), rs.getLong("friend_id"));
+        });
     }
 
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
@@ -104,24 +181,36 @@ public class UserDbStorage implements UserStorage {
         user.setLogin(rs.getString("login"));
         user.setName(rs.getString("name"));
         user.setBirthday(rs.getDate("birthday").toLocalDate());
-        user.setFriends(getFriends(user.getId()));
         return user;
     }
 
-    private Set<Long> getFriends(Long userId) {
-        String sqlQuery = "SELECT friend_id FROM friendships WHERE user_id = ?";
-        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Long.class, userId));
+    // Заполняет друзей для всего списка пользователей одним запросом на каждые IN_CHUNK_SIZE пользователей
+    private List<User> hydrate(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+
+        Map<Long, User> usersById = new HashMap<>();
+        users.forEach(user -> usersById.put(user.getId(), user));
+        for (Object[] userIds : chunks(List.copyOf(usersById.keySet()))) {
+            String sqlQuery = "SELECT user_id, friend_id FROM friendships WHERE user_id IN (" +
+                    placeholders(userIds.length) + ") ORDER BY user_id, friend_id";
+            jdbcTemplate.query(sqlQuery, rs -> {
+                usersById.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+            }, userIds);
+        }
+        return users;
     }
 
-    private void updateFriendships(User user) {
-        String deleteQuery = "DELETE FROM friendships WHERE user_id = ?";
-        jdbcTemplate.update(deleteQuery, user.getId());
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
 
-        if (user.getFriends() != null && !user.getFriends().isEmpty()) {
-            String insertQuery = "INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, ?)";
-            user.getFriends().forEach(friendId -> {
-                jdbcTemplate.update(insertQuery, user.getId(), friendId, "pending");
-            });
+    private static List<Object[]> chunks(List<Long> ids) {
+        List<Object[]> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size())).toArray());
         }
+        return chunks;
     }
 }
@@ -1,8 +1,11 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.IdSet;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface UserStorage {
@@ -12,9 +15,24 @@ public interface UserStorage {
 
     User amend(User user);
 
+    boolean addFriend(Long userId, Long friendId);
+
+    boolean removeFriend(Long userId, Long friendId);
+
     List<User> findAll();
 
+    List<User> findPage(Long afterId, int limit);
+
     List<User> getUsersByIds(Set<Long> ids);
 
+    Map<Long, IdSet> findMutualFriendIds(Long userId, Collection<Long> otherIds);
+
+    // Все связи по возрастанию user_id и friend_id, без загрузки пользователей
+    void forEachFriendship(FriendshipConsumer consumer);
+
     User find(Long id);
+
+    interface FriendshipConsumer {
+        void accept(long userId, long friendId);
+    }
 }
@@ -28,12 +28,15 @@ CREATE TABLE IF NOT EXISTS films (
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL CHECK (duration > 0),
     mpa_id INTEGER NOT NULL REFERENCES mpa_ratings(mpa_id),
+    likes_count INTEGER DEFAULT 0 NOT NULL,
     created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
 
 -- Создание индексов для таблицы фильмов
 CREATE INDEX idx_films_release_date ON films(release_date);
 CREATE INDEX idx_films_mpa_id ON films(mpa_id);
+-- Порядок как в запросе популярных: H2 читает первые строки индекса без сортировки всей таблицы
+CREATE INDEX idx_films_likes_count ON films(likes_count DESC, film_id);
 
 -- Создание таблицы связи фильмов и жанров
 CREATE TABLE IF NOT EXISTS film_genres (
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex.Recommendation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoLikeIndexTest {
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 1; i <= 6; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+        // Пользователь 1 лайкнул фильм 1; его же лайкнули 2, 3 и 4, которым нравятся ещё 2 (трижды), 3 (дважды) и 4
+        like(1, 1);
+        like(2, 1, 2, 3);
+        like(3, 1, 2, 3);
+        like(4, 1, 2, 4);
+        like(5, 5, 6);
+    }
+
+    @Test
+    void recommend_ShouldRankFilmsByCoLikes() {
+        CoLikeIndex index = index(100, 50);
+
+        assertEquals(List.of(new Recommendation(2, 3), new Recommendation(3, 2), new Recommendation(4, 1)),
+                index.recommend(1L, 10));
+        assertEquals(List.of(new Recommendation(2, 3)), index.recommend(1L, 1));
+        assertTrue(index.recommend(99L, 10).isEmpty());
+    }
+
+    @Test
+    void recommend_ShouldFollowLikeChanges() {
+        CoLikeIndex index = index(100, 50);
+
+        index.addLike(5L, 3L);
+        index.addLike(5L, 4L);
+        assertEquals(List.of(new Recommendation(2, 3), new Recommendation(3, 2), new Recommendation(5, 2),
+                new Recommendation(4, 1)), index.recommend(1L, 10));
+
+        index.removeLike(2L, 2L);
+        index.removeLike(2L, 3L);
+        assertEquals(List.of(new Recommendation(3, 2), new Recommendation(5, 2), new Recommendation(2, 1),
+                new Recommendation(4, 1)), index.recommend(1L, 10));
+
+        // Лайкнутый фильм пропадает из выдачи, а его соседи добавляются к оценкам
+        index.addLike(5L, 1L);
+        assertEquals(List.of(new Recommendation(3, 3), new Recommendation(2, 2), new Recommendation(4, 2),
+                new Recommendation(6, 1)), index.recommend(1L, 10));
+    }
+
+    @Test
+    void recommend_ShouldStayWithinNeighbourCapAndUserWindow() {
+        // У фильма 1 помещается один сосед; пользователь 5 вносит только два фильма с наибольшими id
+        CoLikeIndex index = index(1, 2);
+
+        assertEquals(List.of(new Recommendation(2, 3)), index.recommend(1L, 10));
+
+        // Новый сосед вытесняет самого слабого и наследует его счётчик: 6 заменяет 5, а 5 заменил 2
+        index.addLike(1L, 5L);
+        assertEquals(List.of(new Recommendation(6, 5)), index.recommend(1L, 10));
+    }
+
+    private CoLikeIndex index(int neighboursPerFilm, int userWindow) {
+        CoLikeIndex index = new CoLikeIndex(filmStorage, neighboursPerFilm, userWindow);
+        index.reload();
+        return index;
+    }
+
+    private void like(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            filmStorage.addLike(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.GenreController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.FilmBatchService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ConditionalGetTest {
+    private EntityVersions versions;
+    private FilmService filmService;
+    private GenreService genreService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        versions = new EntityVersions();
+        filmService = Mockito.mock(FilmService.class);
+        genreService = Mockito.mock(GenreService.class);
+        Film film = new Film();
+        film.setId(1L);
+        film.setName("Фильм");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        when(filmService.loadFilm(1L)).thenReturn(film);
+        when(genreService.getAllGenres()).thenReturn(List.of(new Genre(1L, "Комедия")));
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new FilmController(filmService, Mockito.mock(FilmBatchService.class), new ObjectMapper(), versions,
+                        new FilmJsonCache(new ObjectMapper().findAndRegisterModules(), versions, 100, 0)),
+                new GenreController(genreService, versions)).build();
+    }
+
+    @Test
+    void getFilm_ShouldAnswerNotModifiedWithoutLoadingUntilFilmChanges() throws Exception {
+        String etag = mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Фильм"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/films/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+        verify(filmService, times(1)).loadFilm(1L);
+
+        // Изменение другого фильма не задевает тег, изменение этого — сбрасывает
+        versions.filmChanged(2L);
+        mockMvc.perform(get("/films/1").header("If-None-Match", etag)).andExpect(status().isNotModified());
+        versions.filmChanged(1L);
+        mockMvc.perform(get("/films/1").header("If-None-Match", etag)).andExpect(status().isOk());
+        verify(filmService, times(2)).loadFilm(1L);
+    }
+
+    @Test
+    void getFilm_ShouldReturnNewBodyAfterUpdateEvenIfFilmCacheIsStillStale() throws Exception {
+        String etag = mockMvc.perform(get("/films/1"))
+                .andReturn().getResponse().getHeader("ETag");
+        Film stale = filmService.loadFilm(1L);
+        Film updated = new Film();
+        updated.setId(1L);
+        updated.setName("Новое название");
+        updated.setReleaseDate(LocalDate.of(2000, 1, 1));
+        updated.setDuration(90);
+        // Версия уже сменилась, а FilmCache до invalidate отдаёт прежнюю копию
+        when(filmService.getFilmById(1L)).thenReturn(stale);
+        when(filmService.loadFilm(1L)).thenReturn(updated);
+        versions.filmChanged(1L);
+
+        String newEtag = mockMvc.perform(get("/films/1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Новое название"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, newEtag);
+        mockMvc.perform(get("/films/1").header("If-None-Match", newEtag)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/films/1"))
+                .andExpect(header().string("ETag", newEtag))
+                .andExpect(jsonPath("$.name").value("Новое название"));
+    }
+
+    @Test
+    void getFilm_ShouldUseSeparateTagForGzipRepresentation() throws Exception {
+        String plain = mockMvc.perform(get("/films/1"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getHeader("ETag");
+        String gzip = mockMvc.perform(get("/films/1").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(plain, gzip);
+
+        mockMvc.perform(get("/films/1").header("Accept-Encoding", "gzip").header("If-None-Match", plain))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/1").header("Accept-Encoding", "gzip").header("If-None-Match", gzip))
+                .andExpect(status().isNotModified());
+        // Обе кодировки берутся из одной записи кэша
+        verify(filmService, times(1)).loadFilm(1L);
+    }
+
+    @Test
+    void getGenres_ShouldChangeTagWhenReferenceDataRefreshed() throws Exception {
+        String etag = mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/genres").header("If-None-Match", etag)).andExpect(status().isNotModified());
+
+        versions.referenceChanged();
+        mockMvc.perform(get("/genres").header("If-None-Match", etag)).andExpect(status().isOk());
+        verify(genreService, times(2)).getAllGenres();
+    }
+
+    @Test
+    void tags_ShouldCoverCascadesAndReset() {
+        String film = versions.filmTag(1L);
+        String user = versions.userTag(1L);
+        String genre = versions.genreTag(1L);
+
+        // Переименование жанра меняет фильмы с этим жанром, удаление пользователя — их лайки
+        versions.referenceChanged();
+        assertNotEquals(film, versions.filmTag(1L));
+        assertNotEquals(genre, versions.genreTag(1L));
+        assertEquals(user, versions.userTag(1L));
+
+        film = versions.filmTag(1L);
+        versions.userDeleted(2L);
+        assertNotEquals(film, versions.filmTag(1L));
+        assertNotEquals(user, versions.userTag(1L));
+
+        String mpa = versions.mpaTag();
+        versions.reset();
+        assertNotEquals(mpa, versions.mpaTag());
+        assertNotEquals(versions.filmTag(1L), versions.filmTag(2L));
+    }
+}
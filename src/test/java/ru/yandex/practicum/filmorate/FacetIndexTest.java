@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacetIndexTest {
+    private static final Genre COMEDY = new Genre(1L, "Комедия");
+    private static final Genre DRAMA = new Genre(2L, "Драма");
+    private static final Genre THRILLER = new Genre(4L, "Триллер");
+
+    private InMemoryFilmStorage filmStorage;
+    private PopularityLeaderboard leaderboard;
+    private FacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        create(1985, 1L, COMEDY);
+        create(1994, 2L, COMEDY, DRAMA);
+        create(1999, 3L, DRAMA);
+        create(2005, 1L, THRILLER);
+        create(1995, 1L, DRAMA, THRILLER);
+        create(1895, 2L);
+        leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.reload();
+        index = new FacetIndex(filmStorage, leaderboard);
+        index.reload();
+    }
+
+    @Test
+    void filter_ShouldCombineFacetsAndCountEachFacetWithoutItsOwnFilter() {
+        FacetIndex.Result result = index.filter(List.of(1L, 2L), List.of(1L), 1990, 2000, false, 10);
+
+        assertEquals(List.of(5L), result.filmIds());
+        assertEquals(1, result.total());
+        // Жанры считаются по рейтингу 1 и годам 1990–2000, рейтинги — по жанрам 1 или 2 и тем же годам
+        assertEquals(Map.of(2L, 1, 4L, 1), result.genreCounts());
+        assertEquals(Map.of(1L, 1, 2L, 1, 3L, 1), result.mpaCounts());
+    }
+
+    @Test
+    void filter_ShouldTreatMissingFiltersAsAllFilms() {
+        FacetIndex.Result all = index.filter(null, List.of(), null, null, false, 4);
+        assertEquals(List.of(1L, 2L, 3L, 4L), all.filmIds());
+        assertEquals(6, all.total());
+        assertEquals(Map.of(1L, 2, 2L, 3, 4L, 2), all.genreCounts());
+
+        assertEquals(List.of(1L, 6L), index.filter(null, null, null, 1990, false, 10).filmIds());
+        assertEquals(List.of(4L), index.filter(null, null, 2000, null, false, 10).filmIds());
+        assertEquals(0, index.filter(List.of(99L), null, null, null, false, 10).total());
+    }
+
+    @Test
+    void filter_ShouldSortByLikesWhenWalkingRankingAndWhenScoringCandidates() {
+        like(5L, 7);
+        like(3L, 7);
+        like(1L, 2);
+
+        for (int i = 0; i < 40; i++) {
+            Film film = create(2010, 5L);
+            index.put(film, 0);
+            leaderboard.update(film.getId(), 0);
+        }
+
+        // Совпадает весь каталог: выгоднее идти по рейтингу популярности
+        assertEquals(List.of(3L, 5L), index.filter(null, null, null, null, true, 2).filmIds());
+        // Несколько совпадений: сортируются сами кандидаты
+        assertEquals(List.of(3L, 5L), index.filter(List.of(2L, 4L), null, null, null, true, 2).filmIds());
+        assertEquals(List.of(1L, 2L), index.filter(List.of(1L), null, null, null, true, 10).filmIds());
+    }
+
+    @Test
+    void filter_ShouldFollowUpdatedAndRemovedFilms() {
+        Film film = filmStorage.find(1L);
+        film.setGenres(List.of(THRILLER));
+        film.setReleaseDate(LocalDate.of(2010, 1, 1));
+        index.put(film, 0);
+        index.remove(4L);
+        index.put(create(2020, 3L, COMEDY), 0);
+
+        assertEquals(List.of(1L, 5L), index.filter(List.of(4L), null, null, null, false, 10).filmIds());
+        assertEquals(List.of(2L, 7L), index.filter(List.of(1L), null, null, null, false, 10).filmIds());
+        assertEquals(List.of(1L, 7L), index.filter(null, null, 2006, 2030, false, 10).filmIds());
+    }
+
+    private void like(Long filmId, int likes) {
+        leaderboard.update(filmId, likes);
+        index.updateLikes(filmId, likes);
+    }
+
+    private Film create(int year, long mpaId, Genre... genres) {
+        Film film = new Film();
+        film.setName("Фильм " + year);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(year, 6, 1));
+        film.setDuration(90);
+        film.setMpa(new MpaRating(mpaId, "MPA " + mpaId, null));
+        film.setGenres(new ArrayList<>(List.of(genres)));
+        return filmStorage.create(film);
+    }
+}
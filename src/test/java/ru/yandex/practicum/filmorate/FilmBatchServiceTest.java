@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate;
+
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResult;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmBatchService;
+import ru.yandex.practicum.filmorate.service.DirectLikeWriter;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class FilmBatchServiceTest {
+    private InMemoryFilmStorage filmStorage;
+    private FilmBatchService filmBatchService;
+    private MpaRating testMpa;
+
+    @BeforeEach
+    void setUp() {
+        MpaService mpaService = Mockito.mock(MpaService.class);
+        testMpa = new MpaRating(1L, "G", "General Audiences");
+        when(mpaService.getMpaRatingById(1L)).thenReturn(testMpa);
+        when(mpaService.getMpaRatingById(99L)).thenThrow(new NotFoundException("MPA рейтинг с id 99 не найден"));
+
+        filmStorage = new InMemoryFilmStorage();
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmStorage);
+        FilmSearchIndex searchIndex = new FilmSearchIndex(filmStorage, 10000);
+        TypeaheadIndex typeahead = new TypeaheadIndex(filmStorage, new InMemoryUserStorage(), 10000);
+        FacetIndex facetIndex = new FacetIndex(filmStorage, leaderboard);
+        EntityVersions versions = new EntityVersions();
+        FilmService filmService = new FilmService(filmStorage, Mockito.mock(UserService.class),
+                Mockito.mock(GenreService.class), mpaService, leaderboard,
+                new FilmCache(versions, 100, Duration.ofMinutes(1)), new DirectLikeWriter(filmStorage),
+                new CoLikeIndex(filmStorage, 100, 50), searchIndex, typeahead, facetIndex, versions);
+        filmBatchService = new FilmBatchService(filmStorage, filmService, leaderboard, searchIndex, typeahead,
+                facetIndex, Validation.buildDefaultValidatorFactory().getValidator(), 2);
+    }
+
+    @Test
+    void createFilms_ShouldCreateValidFilmsAndReportErrors() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            films.add(film("Film " + i, 1L));
+        }
+        films.get(1).setName("");
+        films.get(3).setMpa(new MpaRating(99L, null, null));
+
+        FilmBatchResult result = filmBatchService.createFilms(films.iterator());
+
+        assertEquals(3, result.getIds().size());
+        assertEquals(3, filmStorage.findAll().size());
+        assertEquals(List.of(1, 3), result.getErrors().stream().map(FilmBatchResult.ItemError::getIndex).toList());
+        assertEquals("Указан несуществующий MPA рейтинг", result.getErrors().get(1).getError());
+    }
+
+    @Test
+    void createFilms_ShouldStopAtUnreadableItem() {
+        Iterator<Film> films = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                if (read == 3) {
+                    throw new IllegalStateException("Unexpected token");
+                }
+                return true;
+            }
+
+            @Override
+            public Film next() {
+                return film("Film " + read++, 1L);
+            }
+        };
+
+        FilmBatchResult result = filmBatchService.createFilms(films);
+
+        assertEquals(3, result.getIds().size());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(3, result.getErrors().get(0).getIndex());
+    }
+
+    private Film film(String name, Long mpaId) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setMpa(new MpaRating(mpaId, null, null));
+        return film;
+    }
+}
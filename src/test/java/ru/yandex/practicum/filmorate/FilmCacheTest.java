@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmCacheTest {
+
+    @Test
+    void get_ShouldLoadOnceAndCountHits() {
+        FilmCache cache = new FilmCache(new EntityVersions(), 10, Duration.ofMinutes(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        AtomicInteger loads = new AtomicInteger();
+
+        Film first = cache.get(1L, id -> film(id, loads));
+        Film second = cache.get(1L, id -> film(id, loads));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "films", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "films", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        FilmCache cache = new FilmCache(new EntityVersions(), 10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, id -> film(id, loads));
+        cache.invalidate(1L);
+        cache.get(1L, id -> film(id, loads));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_ShouldLoadHotEntryOnceUnderConcurrentRequests() throws InterruptedException {
+        FilmCache cache = new FilmCache(new EntityVersions(), 10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        for (int i = 0; i < 64; i++) {
+            executor.submit(() -> {
+                start.await();
+                return cache.get(1L, id -> {
+                    sleep();
+                    return film(id, loads);
+                });
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getAll_ShouldLoadOnlyMissingFilmsAndKeepOrder() {
+        FilmCache cache = new FilmCache(new EntityVersions(), 10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(2L, id -> film(id, loads));
+
+        List<Film> films = cache.getAll(List.of(3L, 2L, 1L), ids -> {
+            assertFalse(ids.contains(2L));
+            return ids.stream().map(id -> film(id, loads)).collect(Collectors.toList());
+        });
+
+        assertEquals(List.of(3L, 2L, 1L), films.stream().map(Film::getId).toList());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void getAll_ShouldNotCacheFilmChangedDuringLoad() {
+        EntityVersions versions = new EntityVersions();
+        FilmCache cache = new FilmCache(versions, 10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Film> films = cache.getAll(List.of(1L, 2L), ids -> {
+            List<Film> stale = ids.stream().map(id -> film(id, loads)).collect(Collectors.toList());
+            // Запись в фильм 1 завершилась, пока пакет читался из базы
+            versions.filmChanged(1L);
+            cache.invalidate(1L);
+            return stale;
+        });
+
+        assertEquals(List.of(1L, 2L), films.stream().map(Film::getId).toList());
+        cache.get(2L, id -> film(id, loads));
+        assertEquals(2, loads.get());
+        cache.get(1L, id -> film(id, loads));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void get_ShouldEvictWhenSizeExceeded() {
+        FilmCache cache = new FilmCache(new EntityVersions(), 5, Duration.ofMinutes(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (long id = 1; id <= 50; id++) {
+            cache.get(id, filmId -> film(filmId, loads));
+        }
+        cache.cleanUp();
+
+        assertTrue(registry.get("cache.evictions").tags("cache", "films").functionCounter().count() > 0);
+        assertTrue(registry.get("cache.size").tags("cache", "films").gauge().value() <= 5);
+    }
+
+    private static Film film(Long id, AtomicInteger loads) {
+        loads.incrementAndGet();
+        Film film = new Film();
+        film.setId(id);
+        return film;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,4 +1,5 @@
 package ru.yandex.practicum.filmorate;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -6,15 +7,28 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.GenreService;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @JdbcTest
 @ActiveProfiles("test")
@@ -24,11 +38,14 @@ class FilmDbStorageTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    private ReferenceDataCache referenceDataCache;
     private FilmDbStorage filmStorage;
 
     @BeforeEach
     void setUp() {
-        filmStorage = new FilmDbStorage(jdbcTemplate);
+        referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.refresh();
+        filmStorage = new FilmDbStorage(jdbcTemplate, referenceDataCache);
     }
 
     @Test
@@ -48,6 +65,46 @@ class FilmDbStorageTest {
         assertThat(foundFilm.getName()).isEqualTo("New Film");
     }
 
+    @Test
+    void shouldCreateFilmsInBatch() {
+        List<Film> newFilms = new java.util.ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = new Film();
+            film.setName("Batch Film " + i);
+            film.setReleaseDate(LocalDate.of(2010 + i, 1, 1));
+            film.setDuration(100);
+            film.setMpa(referenceDataCache.getMpaRating(2L));
+            film.getGenres().add(referenceDataCache.getGenre((long) i + 1));
+            newFilms.add(film);
+        }
+
+        List<Long> ids = filmStorage.createAll(newFilms);
+
+        assertThat(ids).hasSize(3).doesNotContainNull().doesNotHaveDuplicates();
+        Film found = filmStorage.find(ids.get(2));
+        assertThat(found.getName()).isEqualTo("Batch Film 2");
+        assertThat(found.getGenres()).containsExactly(referenceDataCache.getGenre(3L));
+        assertThat(filmStorage.findAll()).hasSize(4);
+    }
+
+    @Test
+    void shouldStreamFilmsInHydratedBatches() {
+        Film film = filmStorage.find(1L);
+        for (int i = 0; i < 4; i++) {
+            film.setId(null);
+            filmStorage.create(film);
+        }
+        filmStorage.addLike(5L, 1L);
+
+        List<List<Film>> batches = new java.util.ArrayList<>();
+        filmStorage.streamAll(2, batch -> batches.add(List.copyOf(batch)));
+
+        assertThat(batches).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(batches.get(2).get(0).getId()).isEqualTo(5L);
+        assertThat(batches.get(2).get(0).getLikes()).containsExactly(1L);
+        assertThat(batches.get(0).get(0).getMpa().getName()).isEqualTo("G");
+    }
+
     @Test
     void shouldUpdateFilm() {
         Film filmToUpdate = filmStorage.find(1L);
@@ -65,6 +122,37 @@ class FilmDbStorageTest {
         assertThat(films).hasSize(1); // Согласно test-data.sql
     }
 
+    @Test
+    void shouldThrowWhenAmendingMissingFilm() {
+        Film film = filmStorage.find(1L);
+        film.setId(999L);
+
+        assertThrows(NotFoundException.class, () -> filmStorage.amend(film));
+    }
+
+    @Test
+    void shouldWriteFilmWithoutReadingItBack() {
+        CountingJdbcTemplate countingTemplate = new CountingJdbcTemplate(jdbcTemplate);
+        FilmDbStorage countingStorage = new FilmDbStorage(countingTemplate, referenceDataCache);
+        Film film = filmStorage.find(1L);
+        film.setId(null);
+        film.getGenres().add(new Genre(2L, null));
+        film.getGenres().add(new Genre(1L, null));
+        film.getGenres().add(new Genre(2L, null));
+
+        countingTemplate.reset();
+        Film created = countingStorage.create(film);
+        assertThat(countingTemplate.getCount()).isEqualTo(2);
+        assertThat(created.getGenres()).containsExactly(referenceDataCache.getGenre(1L),
+                referenceDataCache.getGenre(2L));
+
+        countingTemplate.reset();
+        created.setName("Renamed");
+        countingStorage.amend(created);
+        assertThat(countingTemplate.getCount()).isEqualTo(4);
+        assertThat(filmStorage.find(created.getId())).isEqualTo(created);
+    }
+
     @Test
     void shouldAddAndFindFilmWithGenres() {
         Film film = filmStorage.find(1L);
@@ -75,4 +163,198 @@ class FilmDbStorageTest {
         assertThat(updatedFilm.getGenres()).hasSize(1);
         assertThat(updatedFilm.getGenres().get(0).getName()).isEqualTo("Комедия");
     }
+
+    @Test
+    void shouldDropCachedFilmsOnlyWhenReferenceDataChanges() {
+        EntityVersions versions = new EntityVersions();
+        FilmCache filmCache = new FilmCache(versions, 10, Duration.ofMinutes(1));
+        FilmJsonCache filmJsonCache = new FilmJsonCache(new ObjectMapper().findAndRegisterModules(), versions, 10, 1024);
+        GenreService genreService = new GenreService(referenceDataCache, versions, filmCache, filmJsonCache);
+        Film film = filmStorage.find(1L);
+        film.getGenres().add(new Genre(1L, null));
+        filmStorage.amend(film);
+        filmCache.get(1L, filmStorage::find);
+        String tag = versions.filmTag(1L);
+
+        genreService.refresh();
+        assertThat(filmCache.get(1L, id -> null)).isNotNull();
+        assertThat(versions.filmTag(1L)).isEqualTo(tag);
+
+        jdbcTemplate.update("UPDATE genres SET genre_name = 'Сатира' WHERE genre_id = 1");
+        genreService.refresh();
+        assertThat(filmCache.get(1L, filmStorage::find).getGenres()).extracting(Genre::getName)
+                .containsExactly("Сатира");
+        assertThat(versions.filmTag(1L)).isNotEqualTo(tag);
+    }
+
+    @Test
+    void shouldFindPopularFilmsByLikesCount() {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+                "VALUES ('second@example.com', 'user2', 'User Two', '1991-01-01')");
+        Film second = filmStorage.find(1L);
+        second.setId(null);
+        second.setName("Second Film");
+        second = filmStorage.create(second);
+
+        filmStorage.addLike(second.getId(), 1L);
+        filmStorage.addLike(second.getId(), 2L);
+        filmStorage.addLike(1L, 1L);
+
+        List<Film> popular = filmStorage.findPopular(1);
+        assertThat(popular).hasSize(1);
+        assertThat(popular.get(0).getId()).isEqualTo(second.getId());
+        assertThat(filmStorage.findPopular(10)).extracting(Film::getId).containsExactly(second.getId(), 1L);
+    }
+
+    @Test
+    void shouldReadPopularFilmsFromSortedIndex() {
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT * FROM films ORDER BY likes_count DESC, film_id LIMIT 10", String.class);
+
+        assertThat(plan).contains("IDX_FILMS_LIKES_COUNT").contains("index sorted").doesNotContain("tableScan");
+    }
+
+    @Test
+    void shouldReadLikeCountsFromCounterColumn() {
+        jdbcTemplate.update("UPDATE films SET likes_count = 7 WHERE film_id = 1");
+
+        assertThat(filmStorage.findLikeCounts()).containsExactly(Map.entry(1L, 7));
+    }
+
+    @Test
+    void shouldAddAndRemoveSingleLike() {
+        assertThat(filmStorage.addLike(1L, 1L)).isTrue();
+        assertThat(filmStorage.addLike(1L, 1L)).isFalse();
+        assertThat(filmStorage.find(1L).getLikes()).containsExactly(1L);
+        assertThat(filmStorage.findLikeCounts()).containsEntry(1L, 1);
+
+        assertThat(filmStorage.removeLike(1L, 1L)).isTrue();
+        assertThat(filmStorage.removeLike(1L, 1L)).isFalse();
+        assertThat(filmStorage.find(1L).getLikes()).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = 1", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void shouldVisitAllLikesOrderedByFilm() {
+        Film second = filmStorage.create(filmStorage.find(1L));
+        filmStorage.addLike(second.getId(), 1L);
+        filmStorage.addLike(1L, 1L);
+
+        List<long[]> likes = new ArrayList<>();
+        filmStorage.forEachLike((filmId, userId) -> likes.add(new long[]{filmId, userId}));
+
+        assertThat(likes).containsExactly(new long[]{1L, 1L}, new long[]{second.getId(), 1L});
+    }
+
+    @Test
+    void shouldKeepLikesWhenFilmIsAmended() {
+        filmStorage.addLike(1L, 1L);
+        Film film = filmStorage.find(1L);
+        film.getLikes().clear();
+        film.setName("Renamed");
+
+        assertThat(filmStorage.amend(film).getLikes()).containsExactly(1L);
+    }
+
+    @Test
+    void shouldThrowWhenLikingMissingFilm() {
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(999L, 1L));
+        assertThrows(NotFoundException.class, () -> filmStorage.removeLike(999L, 1L));
+    }
+
+    @Test
+    void shouldApplyLikeChangesInBatchSkippingMissingFilms() {
+        filmStorage.applyLikeChanges(List.of(
+                new LikeChange(1L, 1L, true),
+                new LikeChange(999L, 1L, true)));
+
+        assertThat(filmStorage.findLikedFilmIds(1L)).containsExactly(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = 1", Integer.class))
+                .isEqualTo(1);
+
+        filmStorage.applyLikeChanges(List.of(new LikeChange(1L, 1L, false), new LikeChange(1L, 1L, false)));
+
+        assertThat(filmStorage.findLikedFilmIds(1L)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = 1", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void shouldHydrateFilmsWithConstantQueryCount() {
+        CountingJdbcTemplate countingTemplate = new CountingJdbcTemplate(jdbcTemplate);
+        FilmDbStorage countingStorage = new FilmDbStorage(countingTemplate, referenceDataCache);
+
+        countingTemplate.reset();
+        assertThat(countingStorage.findAll()).hasSize(1);
+        int singleFilmQueries = countingTemplate.getCount();
+
+        for (int i = 0; i < 20; i++) {
+            Film film = filmStorage.find(1L);
+            film.setId(null);
+            film.getGenres().add(new Genre((long) (i % 3 + 1), null));
+            Film created = filmStorage.create(film);
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, 1)", created.getId());
+        }
+
+        countingTemplate.reset();
+        List<Film> films = countingStorage.findAll();
+        assertThat(films).hasSize(21);
+        assertThat(countingTemplate.getCount()).isEqualTo(singleFilmQueries);
+        assertThat(films.get(20).getLikes()).containsExactly(1L);
+        assertThat(films.get(20).getGenres()).hasSize(1);
+        assertThat(films.get(20).getMpa().getName()).isEqualTo("G");
+        assertThat(films.get(20).getMpa()).isSameAs(films.get(0).getMpa());
+        assertThat(films.get(20).getGenres().get(0)).isSameAs(referenceDataCache.getGenre(2L));
+    }
+
+    @Test
+    void shouldHydrateLargeCatalogInBoundedChunks() {
+        List<Film> newFilms = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            film.setMpa(referenceDataCache.getMpaRating(1L));
+            film.getGenres().add(referenceDataCache.getGenre(1L));
+            newFilms.add(film);
+        }
+        List<Long> ids = filmStorage.createAll(newFilms);
+        Long last = ids.get(ids.size() - 1);
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, 1)", last);
+        CountingJdbcTemplate countingTemplate = new CountingJdbcTemplate(jdbcTemplate);
+        FilmDbStorage countingStorage = new FilmDbStorage(countingTemplate, referenceDataCache);
+
+        List<Film> films = countingStorage.findAll();
+
+        // Запрос фильмов и по два запроса лайков и жанров на каждую тысячу
+        assertThat(countingTemplate.getCount()).isEqualTo(5);
+        assertThat(films).hasSize(1501);
+        assertThat(films.get(1500).getLikes()).containsExactly(1L);
+        assertThat(films.subList(1, 1501)).allSatisfy(film -> assertThat(film.getGenres()).isNotEmpty());
+        assertThat(countingStorage.findByIds(ids)).extracting(Film::getId).containsExactlyElementsOf(ids);
+    }
+
+    private static class CountingJdbcTemplate extends JdbcTemplate {
+        private int count;
+
+        CountingJdbcTemplate(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate.getDataSource());
+        }
+
+        @Override
+        protected void applyStatementSettings(Statement stmt) throws SQLException {
+            count++;
+            super.applyStatementSettings(stmt);
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        void reset() {
+            count = 0;
+        }
+    }
 }
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.DirectLikeWriter;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmJsonCacheTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<Long, Film> films = new HashMap<>();
+    private final List<List<Long>> loads = new ArrayList<>();
+    private EntityVersions versions;
+    private FilmJsonCache cache;
+
+    @BeforeEach
+    void setUp() {
+        versions = new EntityVersions();
+        cache = new FilmJsonCache(objectMapper, versions, 100, 300);
+        for (long id = 1; id <= 3; id++) {
+            films.put(id, film(id, "Фильм " + id));
+        }
+    }
+
+    @Test
+    void get_ShouldEncodeOncePerVersion() throws IOException {
+        FilmJsonCache.Encoded first = cache.get(1L, versions.filmTag(1L), this::load);
+        assertSame(first, cache.get(1L, versions.filmTag(1L), this::load));
+        assertEquals(1, loads.size());
+        assertArrayEquals(objectMapper.writeValueAsBytes(films.get(1L)), first.json());
+
+        films.put(1L, film(1L, "Новое название"));
+        versions.filmChanged(1L);
+        FilmJsonCache.Encoded second = cache.get(1L, versions.filmTag(1L), this::load);
+        assertEquals("Новое название", objectMapper.readTree(second.json()).get("name").asText());
+        assertEquals(2, loads.size());
+    }
+
+    @Test
+    void getArray_ShouldMatchJacksonListAndLoadOnlyMissingFilmsInOneCall() throws IOException {
+        cache.get(2L, versions.filmTag(2L), this::load);
+        loads.clear();
+        films.remove(3L);
+
+        byte[] array = cache.getArray(List.of(3L, 2L, 1L), this::loadAll);
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(List.of(films.get(2L), films.get(1L))), array);
+        assertEquals(List.of(List.of(3L, 1L)), loads);
+        assertArrayEquals("[]".getBytes(), cache.getArray(List.of(), this::loadAll));
+    }
+
+    @Test
+    void get_ShouldKeepGzipOnlyForLargeFilms() throws IOException {
+        Film large = film(4L, "Популярный");
+        for (long userId = 1; userId <= 100; userId++) {
+            large.getLikes().add(userId);
+        }
+        films.put(4L, large);
+
+        assertNull(cache.get(1L, versions.filmTag(1L), this::load).gzip());
+        FilmJsonCache.Encoded encoded = cache.get(4L, versions.filmTag(4L), this::load);
+        assertNotNull(encoded.gzip());
+        assertTrue(encoded.gzip().length < encoded.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded.gzip()))) {
+            assertArrayEquals(encoded.json(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_ShouldNotStoreOldFilmUnderNewTagWhenReadBetweenVersionChangeAndInvalidation() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmStorage);
+        List<FilmService> service = new ArrayList<>();
+        // Чтение JSON происходит внутри updateFilm: версия уже сменилась, а FilmCache ещё хранит прежнюю копию
+        FilmCache filmCache = new FilmCache(versions, 100, Duration.ofMinutes(1)) {
+            @Override
+            public void invalidate(Long id) {
+                cache.get(id, versions.filmTag(id), service.get(0)::loadFilm);
+                cache.getArray(List.of(id), service.get(0)::loadFilmsByIds);
+                super.invalidate(id);
+            }
+        };
+        MpaService mpaService = Mockito.mock(MpaService.class);
+        service.add(new FilmService(filmStorage, Mockito.mock(UserService.class), Mockito.mock(GenreService.class),
+                mpaService, leaderboard, filmCache, new DirectLikeWriter(filmStorage),
+                new CoLikeIndex(filmStorage, 100, 50), new FilmSearchIndex(filmStorage, 10000),
+                new TypeaheadIndex(filmStorage, new InMemoryUserStorage(), 10000),
+                new FacetIndex(filmStorage, leaderboard), versions));
+        MpaRating mpa = new MpaRating(1L, "G", "Нет возрастных ограничений");
+        Mockito.when(mpaService.getMpaRatingById(1L)).thenReturn(mpa);
+        Film created = film(null, "Старое название");
+        created.setMpa(mpa);
+        Long id = service.get(0).createFilm(created).getId();
+        service.get(0).getFilmById(id);
+
+        Film updated = film(id, "Новое название");
+        updated.setMpa(mpa);
+        service.get(0).updateFilm(updated);
+
+        String tag = versions.filmTag(id);
+        assertEquals("Новое название", objectMapper.readTree(cache.get(id, tag, this::load).json())
+                .get("name").asText());
+        assertEquals("Новое название", objectMapper.readTree(cache.getArray(List.of(id), this::loadAll))
+                .get(0).get("name").asText());
+        assertTrue(loads.isEmpty());
+    }
+
+    private Film load(Long id) {
+        loads.add(List.of(id));
+        return films.get(id);
+    }
+
+    private List<Film> loadAll(List<Long> ids) {
+        loads.add(ids);
+        return ids.stream().map(films::get).filter(Objects::nonNull).toList();
+    }
+
+    private static Film film(Long id, String name) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        create("Тёмный рыцарь", "Бэтмен против Джокера");
+        create("Рыцарь дорог", "Погоня по дорогам, рыцарь без страха");
+        create("Город", "Фильм про рыцаря и тёмный город");
+        create("Бэтмен", "Тёмный рыцарь возвращается. Тёмный, тёмный город");
+        index = new FilmSearchIndex(filmStorage, 10000);
+        index.reload();
+    }
+
+    @Test
+    void search_ShouldRequireAllWordsAndRankByTermFrequency() {
+        // Слово из названия весит как три вхождения в описании
+        assertEquals(List.of(1L, 4L), index.search("ТЕМНЫЙ рыцарь", 10));
+        assertEquals(List.of(2L, 1L, 4L), index.search("рыцарь", 10));
+        assertEquals(List.of(2L), index.search("рыцарь", 1));
+        assertTrue(index.search("рыцарь джокер", 10).isEmpty());
+        assertTrue(index.search("пингвин", 10).isEmpty());
+        assertTrue(index.search("!!!", 10).isEmpty());
+    }
+
+    @Test
+    void search_ShouldBoostFilmsWithMoreLikes() {
+        index.updateLikes(4L, 100);
+
+        assertEquals(List.of(4L, 1L), index.search("тёмный рыцарь", 10));
+    }
+
+    @Test
+    void search_ShouldFollowCreatedUpdatedAndDeletedFilms() {
+        Film film = create("Рыцарь рыцарь рыцарь", "Рыцарь");
+        index.add(film);
+        assertEquals(5L, index.search("рыцарь", 10).get(0));
+
+        Film before = filmStorage.find(2L);
+        Film after = filmStorage.find(2L);
+        after.setName("Дорога");
+        index.update(before, after);
+        assertEquals(List.of(5L, 1L, 2L, 4L), index.search("рыцарь", 10));
+        assertEquals(List.of(2L), index.search("дорога", 10));
+
+        index.remove(filmStorage.find(1L));
+        assertEquals(List.of(4L), index.search("тёмный рыцарь", 10));
+    }
+
+    @Test
+    void search_ShouldReturnSameResultsWithDenseLists() {
+        // С порогом 0 плотными становятся все слова, которые есть хотя бы в четверти фильмов
+        FilmSearchIndex dense = new FilmSearchIndex(filmStorage, 0);
+        dense.reload();
+        dense.updateLikes(4L, 100);
+        index.updateLikes(4L, 100);
+
+        for (String query : List.of("тёмный рыцарь", "рыцарь", "тёмный город", "бэтмен", "город дорог")) {
+            assertEquals(index.search(query, 10), dense.search(query, 10), query);
+        }
+
+        dense.remove(filmStorage.find(4L));
+        assertEquals(List.of(1L), dense.search("тёмный рыцарь", 10));
+    }
+
+    private Film create(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return filmStorage.create(film);
+    }
+}
@@ -3,19 +3,35 @@ package ru.yandex.practicum.filmorate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectLikeWriter;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.GenreService;
 import ru.yandex.practicum.filmorate.service.MpaService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -26,6 +42,8 @@ class FilmServiceTest {
     private UserService userService;
     private MpaService mpaService;
     private GenreService genreService;
+    private InMemoryFilmStorage filmStorage;
+    private EntityVersions versions;
     private Film testFilm;
     private MpaRating testMpa;
 
@@ -34,7 +52,15 @@ class FilmServiceTest {
         userService = Mockito.mock(UserService.class);
         mpaService = Mockito.mock(MpaService.class);
         genreService = Mockito.mock(GenreService.class);
-        filmService = new FilmService(new InMemoryFilmStorage(), userService, genreService, mpaService);
+        filmStorage = new InMemoryFilmStorage();
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmStorage);
+        versions = new EntityVersions();
+        filmService = new FilmService(filmStorage, userService, genreService, mpaService,
+                leaderboard, new FilmCache(versions, 100, Duration.ofMinutes(1)),
+                new DirectLikeWriter(filmStorage), new CoLikeIndex(filmStorage, 100, 50),
+                new FilmSearchIndex(filmStorage, 10000),
+                new TypeaheadIndex(filmStorage, new InMemoryUserStorage(), 10000),
+                new FacetIndex(filmStorage, leaderboard), versions);
 
         testMpa = new MpaRating(1L, "G", "General Audiences");
 
@@ -77,6 +103,43 @@ class FilmServiceTest {
         assertEquals(1, filmService.getAllFilms().size());
     }
 
+    @Test
+    void updateFilm_ShouldNotLeaveWordsOfConcurrentVersionsInSearch() throws InterruptedException {
+        Long id = filmService.createFilm(testFilm).getId();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    Film version = new Film();
+                    version.setId(id);
+                    version.setName("v" + thread + "x" + i);
+                    version.setReleaseDate(LocalDate.of(2000, 1, 1));
+                    version.setDuration(120);
+                    version.setMpa(testMpa);
+                    filmService.updateFilm(version);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        testFilm.setId(id);
+        testFilm.setName("Final");
+        filmService.updateFilm(testFilm);
+
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 200; i++) {
+                assertTrue(filmService.searchFilms("v" + t + "x" + i, 10).isEmpty());
+            }
+        }
+        assertEquals(1, filmService.searchFilms("final", 10).size());
+    }
+
     @Test
     void updateFilm_ShouldThrowException_WhenFilmNotFound() {
         testFilm.setId(999L);
@@ -106,6 +169,33 @@ class FilmServiceTest {
         assertEquals(2, films.size());
     }
 
+    @Test
+    void getFilmsPage_ShouldWalkAllFilmsWithCursor() {
+        for (int i = 0; i < 5; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            film.setMpa(testMpa);
+            filmService.createFilm(film);
+        }
+
+        Page<Film> first = filmService.getFilmsPage(null, 2);
+        Page<Film> second = filmService.getFilmsPage(first.getNextCursor(), 2);
+        Page<Film> last = filmService.getFilmsPage(second.getNextCursor(), 2);
+
+        assertEquals(List.of(1L, 2L), first.getItems().stream().map(Film::getId).toList());
+        assertEquals(List.of(3L, 4L), second.getItems().stream().map(Film::getId).toList());
+        assertEquals(List.of(5L), last.getItems().stream().map(Film::getId).toList());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void getFilmsPage_ShouldRejectInvalidCursorAndLimit() {
+        assertThrows(ValidationException.class, () -> filmService.getFilmsPage("not-a-cursor", 10));
+        assertThrows(ValidationException.class, () -> filmService.getFilmsPage(null, 0));
+    }
+
     @Test
     void addLike_ShouldAddLikeToFilm() {
         Film createdFilm = filmService.createFilm(testFilm);
@@ -135,6 +225,65 @@ class FilmServiceTest {
         assertThrows(NotFoundException.class, () -> filmService.deleteLike(createdFilm.getId(), 1L));
     }
 
+    @Test
+    void removeUserLikes_ShouldDropDeletedUserLikesFromRanking() {
+        Film first = filmService.createFilm(testFilm);
+        Film second = new Film();
+        second.setName("Second Film");
+        second.setReleaseDate(LocalDate.of(2001, 1, 1));
+        second.setDuration(90);
+        second.setMpa(testMpa);
+        second = filmService.createFilm(second);
+        filmService.addLike(first.getId(), 1L);
+        filmService.addLike(first.getId(), 2L);
+        filmService.addLike(second.getId(), 1L);
+
+        filmService.removeUserLikes(1L);
+
+        assertEquals(List.of(first.getId(), second.getId()), filmService.getPopularFilmIds(10));
+        assertEquals(List.of(first.getId()), filmStorage.findLikedFilmIds(2L));
+        assertTrue(filmStorage.findLikedFilmIds(1L).isEmpty());
+        filmService.addLike(second.getId(), 2L);
+        filmService.addLike(second.getId(), 3L);
+        assertEquals(List.of(second.getId(), first.getId()), filmService.getPopularFilmIds(10));
+    }
+
+    @Test
+    void removeUserLikes_ShouldRefreshCachedFilms() {
+        Film film = filmService.createFilm(testFilm);
+        filmService.addLike(film.getId(), 1L);
+        filmService.addLike(film.getId(), 2L);
+        assertEquals(2, filmService.getFilmById(film.getId()).getLikes().size());
+        String tag = versions.filmTag(film.getId());
+
+        filmService.removeUserLikes(1L);
+
+        assertEquals(Set.of(2L), Set.copyOf(filmService.getFilmById(film.getId()).getLikes()));
+        assertNotEquals(tag, versions.filmTag(film.getId()));
+    }
+
+    @Test
+    void removeUserLikes_ShouldUpdateLikeIndexes() {
+        Film first = filmService.createFilm(testFilm);
+        Film second = new Film();
+        second.setName("Second Film");
+        second.setReleaseDate(LocalDate.of(2001, 1, 1));
+        second.setDuration(90);
+        second.setMpa(testMpa);
+        second = filmService.createFilm(second);
+        filmService.addLike(first.getId(), 1L);
+        filmService.addLike(first.getId(), 2L);
+        filmService.addLike(second.getId(), 1L);
+        assertEquals(second.getId(), filmService.getRecommendations(2L, 10).get(0).getFilm().getId());
+
+        filmService.removeUserLikes(1L);
+
+        // Пользователь 1 больше не связывает фильмы, а подсказки показывают оставшиеся лайки
+        assertTrue(filmService.getRecommendations(2L, 10).isEmpty());
+        assertEquals(0, filmService.completeFilmTitles("Second", 1).get(0).getScore());
+        assertEquals(1, filmService.completeFilmTitles("Test", 1).get(0).getScore());
+    }
+
     @Test
     void getPopularFilms_ShouldReturnMostLikedFilms() {
         Film film1 = filmService.createFilm(testFilm);
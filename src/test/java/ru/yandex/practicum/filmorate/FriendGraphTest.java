@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendGraph.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendGraphTest {
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 8; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+        // 1 дружит с 2, 3, 4; у друзей общие знакомые 5 (через троих), 6 (через двоих) и 7 (через одного)
+        befriend(1, 2, 3, 4);
+        befriend(2, 1, 3, 5, 6);
+        befriend(3, 5, 6);
+        befriend(4, 5, 7);
+    }
+
+    @Test
+    void suggest_ShouldRankFriendsOfFriendsByMutualFriends() {
+        FriendGraph graph = graph(100, 200000);
+
+        assertEquals(List.of(new Suggestion(5, 3), new Suggestion(6, 2), new Suggestion(7, 1)),
+                graph.suggest(1L, 10));
+        assertEquals(List.of(new Suggestion(5, 3)), graph.suggest(1L, 1));
+        assertTrue(graph.suggest(8L, 10).isEmpty());
+    }
+
+    @Test
+    void suggest_ShouldFollowChangesBeforeAndAfterCompaction() {
+        FriendGraph graph = graph(2, 200000);
+
+        graph.addFriend(1L, 5L);
+        assertEquals(List.of(new Suggestion(6, 2), new Suggestion(7, 1)), graph.suggest(1L, 10));
+
+        // Третье изменение переносит overlay в CSR
+        graph.addFriend(4L, 8L);
+        graph.removeFriend(3L, 6L);
+        assertEquals(List.of(new Suggestion(6, 1), new Suggestion(7, 1), new Suggestion(8, 1)),
+                graph.suggest(1L, 10));
+
+        graph.removeUser(4L);
+        assertEquals(List.of(new Suggestion(6, 1)), graph.suggest(1L, 10));
+    }
+
+    @Test
+    void suggest_ShouldStopAfterScannedEdgeLimit() {
+        FriendGraph graph = graph(100, 1);
+
+        // Просматривается только первый друг (2): его друзья 5 и 6, без уже знакомого 3 и самого пользователя
+        assertEquals(List.of(new Suggestion(5, 1), new Suggestion(6, 1)), graph.suggest(1L, 10));
+    }
+
+    @Test
+    void friendCount_ShouldKeepChangesMadeDuringConcurrentCompaction() throws InterruptedException {
+        FriendGraph graph = graph(4, 200000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (long user = 100; user < 164; user++) {
+            long userId = user;
+            executor.submit(() -> {
+                for (long friendId = 1001; friendId <= 1020; friendId++) {
+                    graph.addFriend(userId, friendId);
+                }
+                graph.removeFriend(userId, 1001L);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (long user = 100; user < 164; user++) {
+            assertEquals(19, graph.friendCount(user));
+        }
+        assertEquals(3, graph.friendCount(1L));
+    }
+
+    private FriendGraph graph(int compactThreshold, int maxScannedEdges) {
+        FriendGraph graph = new FriendGraph(userStorage, maxScannedEdges, compactThreshold);
+        graph.reload();
+        return graph;
+    }
+
+    private void befriend(long userId, long... friendIds) {
+        for (long friendId : friendIds) {
+            userStorage.addFriend(userId, friendId);
+        }
+    }
+}
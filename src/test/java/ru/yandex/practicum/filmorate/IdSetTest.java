@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdSetTest {
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void add_ShouldKeepIdsSortedAndUnique() {
+        IdSet ids = new IdSet();
+
+        assertTrue(ids.add(5L));
+        assertTrue(ids.add(1L));
+        assertTrue(ids.add(9L));
+        assertFalse(ids.add(5L));
+
+        assertEquals(List.of(1L, 5L, 9L), new ArrayList<>(ids));
+        assertTrue(ids.contains(9L));
+        assertFalse(ids.contains(2L));
+        assertFalse(ids.contains("9"));
+    }
+
+    @Test
+    void shouldBehaveLikeHashSetOnRandomOperations() {
+        Random random = new Random(42);
+        IdSet ids = new IdSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(id), ids.add(id));
+            } else {
+                assertEquals(expected.remove(id), ids.remove(id));
+            }
+        }
+
+        assertEquals(expected, ids);
+        assertEquals(expected.hashCode(), ids.hashCode());
+    }
+
+    @Test
+    void retainAllAndAddAll_ShouldMergeCompactSets() {
+        IdSet first = new IdSet(List.of(1L, 3L, 5L, 7L));
+        IdSet second = new IdSet(List.of(3L, 4L, 7L, 8L));
+
+        IdSet union = new IdSet(first);
+        assertTrue(union.addAll(second));
+        assertEquals(List.of(1L, 3L, 4L, 5L, 7L, 8L), new ArrayList<>(union));
+
+        assertTrue(first.retainAll(second));
+        assertEquals(List.of(3L, 7L), new ArrayList<>(first));
+        assertFalse(first.retainAll(second));
+        assertFalse(first.addAll(second.stream().filter(first::contains).toList()));
+    }
+
+    @Test
+    void iteratorRemove_ShouldDeleteCurrentElement() {
+        IdSet ids = new IdSet(List.of(1L, 2L, 3L, 4L));
+
+        Iterator<Long> iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(List.of(1L, 3L), new ArrayList<>(ids));
+    }
+
+    @Test
+    void jackson_ShouldSerializeAsNumberArrayAndReadBack() throws Exception {
+        Film film = new Film();
+        film.setName("Film");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setLikes(new IdSet(List.of(7L, 2L)));
+
+        String json = objectMapper.writeValueAsString(film);
+        assertTrue(json.contains("\"likes\":[2,7]"));
+        assertEquals(film.getLikes(), objectMapper.readValue(json, Film.class).getLikes());
+
+        User user = objectMapper.readValue("{\"login\":\"login\",\"friends\":[3,1,3]}", User.class);
+        assertEquals(List.of(1L, 3L), new ArrayList<>(user.getFriends()));
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 2000;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+    }
+
+    @Test
+    void create_ShouldAssignUniqueIdsUnderContention() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                ids.add(filmStorage.create(film("Film " + thread + "-" + i)).getId());
+                ids.add(-userStorage.create(user("user" + thread + "-" + i)).getId());
+            }
+        });
+
+        assertEquals(2 * THREADS * PER_THREAD, ids.size());
+        assertEquals(THREADS * PER_THREAD, filmStorage.findAll().size());
+        assertEquals(THREADS * PER_THREAD, userStorage.findAll().size());
+    }
+
+    @Test
+    void addLike_ShouldNotLoseLikesWhileFilmIsAmended() throws Exception {
+        Long filmId = filmStorage.create(film("Hot")).getId();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                long userId = (long) thread * PER_THREAD + i;
+                assertTrue(filmStorage.addLike(filmId, userId));
+                if (i % 100 == 0) {
+                    Film update = filmStorage.find(filmId);
+                    update.setDescription("Обновление " + userId);
+                    filmStorage.amend(update);
+                }
+                if (i % 2 == 0) {
+                    assertTrue(filmStorage.removeLike(filmId, userId));
+                }
+            }
+        });
+
+        assertEquals(THREADS * PER_THREAD / 2, filmStorage.find(filmId).getLikes().size());
+        assertEquals(THREADS * PER_THREAD / 2, filmStorage.findLikeCounts().get(filmId));
+        assertEquals(filmId, filmStorage.findPopular(1).get(0).getId());
+    }
+
+    @Test
+    void addFriend_ShouldNotLoseFriendsWhileUserIsRead() throws Exception {
+        Long userId = userStorage.create(user("owner")).getId();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                userStorage.addFriend(userId, (long) thread * PER_THREAD + i);
+                // Читатели не должны получать ConcurrentModificationException на живом множестве
+                if (i % 50 == 0) {
+                    new HashSet<>(userStorage.find(userId).getFriends());
+                }
+            }
+        });
+
+        assertEquals(THREADS * PER_THREAD, userStorage.find(userId).getFriends().size());
+    }
+
+    @Test
+    void find_ShouldReturnSnapshotDetachedFromStorage() {
+        Long filmId = filmStorage.create(film("Film")).getId();
+        Long userId = userStorage.create(user("user")).getId();
+
+        filmStorage.find(filmId).getLikes().add(42L);
+        filmStorage.find(filmId).setName("Изменено снаружи");
+        userStorage.find(userId).getFriends().add(42L);
+
+        assertTrue(filmStorage.find(filmId).getLikes().isEmpty());
+        assertEquals("Film", filmStorage.find(filmId).getName());
+        assertTrue(userStorage.find(userId).getFriends().isEmpty());
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int index = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
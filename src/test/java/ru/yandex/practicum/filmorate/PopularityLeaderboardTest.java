@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularityLeaderboardTest {
+    private InMemoryFilmStorage filmStorage;
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < 5; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            for (long userId = 0; userId < i; userId++) {
+                film.addLike(userId);
+            }
+            filmStorage.create(film);
+        }
+        leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.reload();
+    }
+
+    @Test
+    void reload_ShouldSeedRankingFromStorage() {
+        assertEquals(List.of(5L, 4L, 3L), leaderboard.getTop(3));
+        assertEquals(5, leaderboard.getTop(10).size());
+    }
+
+    @Test
+    void increment_ShouldReorderFilms() {
+        leaderboard.increment(1L, 10);
+        leaderboard.increment(5L, -4);
+
+        assertEquals(List.of(1L, 4L, 3L, 2L, 5L), leaderboard.getTop(10));
+    }
+
+    @Test
+    void increment_ShouldKeepUnlikeAppliedBeforeItsLike() {
+        // У фильма 1 лайков нет: отмена пришла раньше лайка, в итоге счётчик должен вернуться к нулю
+        leaderboard.increment(1L, -1);
+        assertEquals(0, leaderboard.getLikes(1L));
+        leaderboard.increment(1L, 1);
+
+        assertEquals(0, leaderboard.getLikes(1L));
+        assertEquals(0, leaderboard.checkConsistency());
+    }
+
+    @Test
+    void remove_ShouldDropFilmFromRanking() {
+        leaderboard.remove(5L);
+
+        assertEquals(List.of(4L, 3L), leaderboard.getTop(2));
+        assertEquals(0, leaderboard.getLikes(5L));
+    }
+
+    @Test
+    void increment_ShouldNotLoseConcurrentUpdates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8000; i++) {
+            long filmId = i % 2 == 0 ? 1L : 2L;
+            executor.submit(() -> leaderboard.increment(filmId, 1));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(4000, leaderboard.getLikes(1L));
+        assertEquals(4001, leaderboard.getLikes(2L));
+        assertEquals(List.of(2L, 1L, 5L), leaderboard.getTop(3));
+    }
+
+    @Test
+    void checkConsistency_ShouldReportDriftWithoutOverwritingCounters() {
+        leaderboard.increment(3L, 7);
+        filmStorage.addLike(4L, 100L);
+        leaderboard.update(99L, 50);
+
+        assertEquals(3, leaderboard.checkConsistency());
+        assertEquals(9, leaderboard.getLikes(3L));
+        assertEquals(3, leaderboard.getLikes(4L));
+        assertEquals(List.of(99L, 3L), leaderboard.getTop(2));
+        assertEquals(3, leaderboard.checkConsistency());
+    }
+
+    @Test
+    void checkConsistency_ShouldRepairNegativeCounters() {
+        leaderboard.increment(2L, -3);
+
+        assertEquals(1, leaderboard.checkConsistency());
+        assertEquals(1, leaderboard.getLikes(2L));
+        assertEquals(0, leaderboard.checkConsistency());
+    }
+
+    @Test
+    void checkConsistency_ShouldSkipFilmsWithPendingLikes() {
+        // Лайки фильмов 3 и 4 ещё в очереди записи: в рейтинге они уже есть, в хранилище — нет
+        leaderboard.increment(3L, 1);
+        leaderboard.increment(4L, 1);
+        leaderboard.increment(5L, 1);
+
+        assertEquals(1, leaderboard.checkConsistency(() -> Set.of(3L, 4L)));
+        assertEquals(3, leaderboard.checkConsistency());
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingFilter;
+import ru.yandex.practicum.filmorate.metrics.QueryCounter;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCountingFilterTest {
+
+    @Test
+    void doFilter_ShouldRecordStatementsPerEndpoint() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryCountingFilter filter = new QueryCountingFilter(registry, 20);
+
+        filter.doFilter(request(), new MockHttpServletResponse(), chainExecuting(3));
+
+        DistributionSummary summary = registry.get("filmorate.request.statements")
+                .tag("uri", "/films/{id}").summary();
+        assertEquals(1, summary.count());
+        assertEquals(3, summary.totalAmount());
+        assertNull(registry.find("filmorate.request.statement.budget.exceeded").counter());
+    }
+
+    @Test
+    void doFilter_ShouldFlagRequestsOverBudget() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryCountingFilter filter = new QueryCountingFilter(registry, 2);
+
+        filter.doFilter(request(), new MockHttpServletResponse(), chainExecuting(5));
+
+        assertEquals(1, registry.get("filmorate.request.statement.budget.exceeded")
+                .tag("uri", "/films/{id}").counter().count());
+    }
+
+    @Test
+    void increment_ShouldBeIgnoredOutsideRequest() {
+        QueryCounter.increment();
+
+        assertEquals(0, QueryCounter.stop());
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/films/{id}");
+        return request;
+    }
+
+    private static MockFilterChain chainExecuting(int statements) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                for (int i = 0; i < statements; i++) {
+                    QueryCounter.increment();
+                }
+            }
+        });
+    }
+}
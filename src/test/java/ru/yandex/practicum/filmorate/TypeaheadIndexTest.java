@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Completion;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeaheadIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        createFilm("Тёмный рыцарь");
+        createFilm("Рыцарь дорог");
+        createFilm("Темнота");
+        createFilm("Рыцарь рыцарей");
+        filmStorage.addLike(2L, 1L);
+        filmStorage.addLike(2L, 2L);
+        filmStorage.addLike(3L, 1L);
+
+        createUser("anna");
+        createUser("anton");
+        createUser("boris");
+        createUser("anastasia_anna");
+        userStorage.addFriend(2L, 1L);
+        userStorage.addFriend(2L, 3L);
+        userStorage.addFriend(4L, 1L);
+    }
+
+    @Test
+    void completeFilms_ShouldMatchAnyWordStartAndRankByLikes() {
+        TypeaheadIndex index = load(10000);
+
+        assertEquals(List.of(
+                new Completion(2L, "Рыцарь дорог", 2),
+                new Completion(1L, "Тёмный рыцарь", 0),
+                new Completion(4L, "Рыцарь рыцарей", 0)), index.completeFilms("РЫЦ", 10));
+        assertEquals(List.of(3L, 1L), ids(index.completeFilms("тем", 10)));
+        assertEquals(List.of(1L), ids(index.completeFilms("тёмный р", 10)));
+        assertEquals(List.of(2L), ids(index.completeFilms("рыцарь", 1)));
+        assertTrue(index.completeFilms("арь", 10).isEmpty());
+    }
+
+    @Test
+    void completeUsers_ShouldMatchLoginStartAndRankByFriends() {
+        TypeaheadIndex index = load(10000);
+
+        assertEquals(List.of(
+                new Completion(2L, "anton", 2),
+                new Completion(4L, "anastasia_anna", 1),
+                new Completion(1L, "anna", 0)), index.completeUsers("an", 10));
+        assertEquals(List.of(1L), ids(index.completeUsers("ANNA", 10)));
+        assertTrue(index.completeUsers("bob", 10).isEmpty());
+    }
+
+    @Test
+    void complete_ShouldFollowChangesBeforeAndAfterCompaction() {
+        // Порог 1 пересобирает массив на каждом изменении, 10000 оставляет все изменения в overlay
+        for (int threshold : List.of(1, 10000)) {
+            TypeaheadIndex index = load(threshold);
+            index.putFilm(5L, "Рыжий кот", 1);
+            index.putFilm(1L, "Светлый рыцарь", 0);
+            index.removeFilm(4L);
+            index.updateFilmLikes(1L, 5);
+            index.putUser(5L, "annette", 3);
+            index.updateUserFriends(2L, 0);
+            index.removeUser(4L);
+
+            assertEquals(List.of(1L, 2L, 5L), ids(index.completeFilms("ры", 10)), "threshold " + threshold);
+            assertEquals(List.of(1L), ids(index.completeFilms("свет", 10)), "threshold " + threshold);
+            assertEquals(List.of(3L), ids(index.completeFilms("тем", 10)), "threshold " + threshold);
+            assertEquals(List.of(5L, 1L, 2L), ids(index.completeUsers("an", 10)), "threshold " + threshold);
+        }
+    }
+
+    @Test
+    void complete_ShouldKeepChangesMadeDuringConcurrentCompaction() throws InterruptedException {
+        TypeaheadIndex index = load(16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            long first = 100 + thread * 1000L;
+            executor.submit(() -> {
+                for (long id = first; id < first + 500; id++) {
+                    index.putFilm(id, "Фильм " + id, 0);
+                    index.updateFilmLikes(id, 1);
+                    if (id % 2 == 0) {
+                        index.putFilm(id, "Кино " + id, 2);
+                    }
+                    if (id % 5 == 0) {
+                        index.removeFilm(id);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (int thread = 0; thread < 8; thread++) {
+            for (long id = 100 + thread * 1000L; id < 600 + thread * 1000L; id++) {
+                List<Completion> expected = id % 5 == 0 ? List.of()
+                        : id % 2 == 0 ? List.of(new Completion(id, "Кино " + id, 2))
+                        : List.of(new Completion(id, "Фильм " + id, 1));
+                // Старое название после переименования не должно находиться
+                List<Completion> actual = new ArrayList<>(completionsOf(index, "кино " + id, id));
+                actual.addAll(completionsOf(index, "фильм " + id, id));
+                assertEquals(expected, actual, "film " + id);
+            }
+        }
+    }
+
+    private static List<Completion> completionsOf(TypeaheadIndex index, String prefix, long id) {
+        return index.completeFilms(prefix, 20).stream()
+                .filter(completion -> completion.getId() == id)
+                .toList();
+    }
+
+    private TypeaheadIndex load(int compactThreshold) {
+        TypeaheadIndex index = new TypeaheadIndex(filmStorage, userStorage, compactThreshold);
+        index.reload();
+        return index;
+    }
+
+    private static List<Long> ids(List<Completion> completions) {
+        return completions.stream().map(Completion::getId).toList();
+    }
+
+    private void createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        filmStorage.create(film);
+    }
+
+    private void createUser(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setName(login);
+        user.setEmail(login + "@mail.ru");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        userStorage.create(user);
+    }
+}
@@ -7,14 +7,24 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.IdSet;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @JdbcTest
 @ActiveProfiles("test")
@@ -56,6 +66,26 @@ class UserDbStorageTest {
         assertThat(userStorage.find(1L).getName()).isEqualTo("Updated Name");
     }
 
+    @Test
+    void shouldThrowWhenAmendingMissingUser() {
+        User user = userStorage.find(1L);
+        user.setId(999L);
+
+        assertThrows(NotFoundException.class, () -> userStorage.amend(user));
+    }
+
+    @Test
+    void shouldDecrementFilmLikesCountWhenUserIsDeleted() {
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (1, 1)");
+        jdbcTemplate.update("UPDATE films SET likes_count = 1 WHERE film_id = 1");
+
+        userStorage.delete(userStorage.find(1L));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = 1", Integer.class))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes", Integer.class)).isZero();
+    }
+
     @Test
     void shouldFindAllUsers() {
         List<User> users = userStorage.findAll();
@@ -63,19 +93,105 @@ class UserDbStorageTest {
     }
 
     @Test
-    void shouldAddAndFindFriends() {
-        User user1 = userStorage.find(1L);
+    void shouldKeepFriendshipsWhenUserIsUpdatedWithoutFriends() {
+        FriendGraph friendGraph = new FriendGraph(userStorage, 50000, 10000);
+        UserService userService = new UserService(userStorage, friendGraph,
+                new TypeaheadIndex(new InMemoryFilmStorage(), userStorage, 10000), new EntityVersions());
+        User friend = new User();
+        friend.setEmail("friend@example.com");
+        friend.setLogin("friendLogin");
+        friend.setBirthday(LocalDate.of(1990, 1, 1));
+        Long friendId = userService.createUser(friend).getId();
+        userService.addFriends(1L, friendId);
+
+        User update = userStorage.find(1L);
+        update.setName("Updated Name");
+        update.setFriends(new IdSet());
+        User updated = userService.updateUser(update);
+
+        assertThat(updated.getFriends()).containsExactly(friendId);
+        assertThat(userStorage.find(1L).getFriends()).containsExactly(friendId);
+        assertThat(friendGraph.friendCount(1L)).isEqualTo(1);
+        assertThat(userService.getFriends(1L)).extracting(User::getId).containsExactly(friendId);
+    }
+
+    @Test
+    void shouldAddAndRemoveSingleFriend() {
         User user2 = new User();
         user2.setEmail("friend@example.com");
         user2.setLogin("friendLogin");
-        user2.setName("Friend");
         user2.setBirthday(LocalDate.of(1990, 1, 1));
-        User createdFriend = userStorage.create(user2);
+        Long friendId = userStorage.create(user2).getId();
+
+        assertThat(userStorage.addFriend(1L, friendId)).isTrue();
+        assertThat(userStorage.addFriend(1L, friendId)).isFalse();
+        assertThat(userStorage.find(1L).getFriends()).containsExactly(friendId);
 
-        user1.getFriends().add(createdFriend.getId());
-        userStorage.amend(user1);
+        assertThat(userStorage.removeFriend(1L, friendId)).isTrue();
+        assertThat(userStorage.removeFriend(1L, friendId)).isFalse();
+        assertThat(userStorage.find(1L).getFriends()).isEmpty();
+    }
 
-        assertThat(userStorage.find(1L).getFriends()).contains(createdFriend.getId());
+    @Test
+    void shouldFindMutualFriendIdsForSeveralUsers() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 2; i <= 6; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("login" + i);
+            user.setBirthday(LocalDate.of(1990, 1, i));
+            ids.add(userStorage.create(user).getId());
+        }
+        // 1 дружит с 4, 5, 6; 2 — с 4, 5; 3 — с 6
+        userStorage.addFriend(1L, ids.get(2));
+        userStorage.addFriend(1L, ids.get(3));
+        userStorage.addFriend(1L, ids.get(4));
+        userStorage.addFriend(ids.get(0), ids.get(2));
+        userStorage.addFriend(ids.get(0), ids.get(3));
+        userStorage.addFriend(ids.get(1), ids.get(4));
+
+        Map<Long, IdSet> mutualFriends = userStorage.findMutualFriendIds(1L, List.of(ids.get(0), ids.get(1), ids.get(2)));
+
+        assertThat(mutualFriends.get(ids.get(0))).containsExactly(ids.get(2), ids.get(3));
+        assertThat(mutualFriends.get(ids.get(1))).containsExactly(ids.get(4));
+        assertThat(mutualFriends.get(ids.get(2))).isEmpty();
+        assertThrows(NotFoundException.class, () -> userStorage.findMutualFriendIds(1L, List.of(999L)));
+    }
+
+    @Test
+    void shouldFindMutualFriendIdsForMoreUsersThanOneChunk() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 2; i <= 1501; i++) {
+            rows.add(new Object[]{"user" + i + "@example.com", "login" + i, "User " + i, LocalDate.of(1990, 1, 1)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", rows);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT user_id FROM users WHERE user_id > 1 ORDER BY user_id",
+                Long.class);
+        Long common = ids.get(0);
+        Long last = ids.get(ids.size() - 1);
+        userStorage.addFriend(1L, common);
+        userStorage.addFriend(last, common);
+
+        Map<Long, IdSet> mutualFriends = userStorage.findMutualFriendIds(1L, ids);
+
+        assertThat(mutualFriends).hasSize(1500);
+        assertThat(mutualFriends.get(last)).containsExactly(common);
+        assertThat(mutualFriends.get(ids.get(1))).isEmpty();
+    }
+
+    @Test
+    void shouldFindUsersPageAfterId() {
+        for (int i = 2; i <= 4; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("login" + i);
+            user.setBirthday(LocalDate.of(1990, 1, i));
+            userStorage.create(user);
+        }
+
+        assertThat(userStorage.findPage(0L, 2)).extracting(User::getId).containsExactly(1L, 2L);
+        assertThat(userStorage.findPage(2L, 5)).extracting(User::getId).containsExactly(3L, 4L);
+        assertThat(userStorage.findPage(4L, 5)).isEmpty();
     }
 
     @Test
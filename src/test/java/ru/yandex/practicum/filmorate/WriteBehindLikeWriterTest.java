@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.service.WriteBehindLikeWriter;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindLikeWriterTest {
+    private RecordingFilmStorage filmStorage;
+    private PopularityLeaderboard leaderboard;
+    private WriteBehindLikeWriter likeWriter;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new RecordingFilmStorage();
+        for (int i = 0; i < 3; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+        leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.reload();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        filmStorage.release.countDown();
+        if (likeWriter != null) {
+            likeWriter.shutdown();
+        }
+    }
+
+    @Test
+    void addLike_ShouldCoalesceLikeAndUnlikeBeforeFlush() throws InterruptedException {
+        likeWriter = writer(100, Duration.ofHours(1));
+
+        assertTrue(likeWriter.addLike(1L, 10L));
+        assertFalse(likeWriter.addLike(1L, 10L));
+        assertTrue(likeWriter.removeLike(1L, 10L));
+        likeWriter.shutdown();
+
+        assertTrue(filmStorage.batches.isEmpty());
+        assertEquals(0, likeWriter.getPendingCount());
+    }
+
+    @Test
+    void shutdown_ShouldFlushPendingLikesInBatches() throws InterruptedException {
+        filmStorage.addLike(3L, 30L);
+        likeWriter = writer(2, Duration.ofHours(1));
+
+        likeWriter.addLike(1L, 10L);
+        likeWriter.addLike(1L, 11L);
+        likeWriter.addLike(2L, 10L);
+        likeWriter.removeLike(3L, 30L);
+        likeWriter.shutdown();
+
+        assertTrue(filmStorage.batches.stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(4, filmStorage.batches.stream().mapToInt(List::size).sum());
+        assertEquals(List.of(10L, 11L), new ArrayList<>(filmStorage.find(1L).getLikes()));
+        assertTrue(filmStorage.find(2L).getLikes().contains(10L));
+        assertTrue(filmStorage.find(3L).getLikes().isEmpty());
+        assertEquals(0, likeWriter.getPendingCount());
+    }
+
+    @Test
+    void applyPending_ShouldShowUnflushedLikesToReaders() {
+        filmStorage.addLike(1L, 20L);
+        likeWriter = writer(100, Duration.ofHours(1));
+
+        likeWriter.addLike(1L, 10L);
+        likeWriter.removeLike(1L, 20L);
+
+        Film film = likeWriter.applyPending(filmStorage.find(1L));
+        assertTrue(film.getLikes().contains(10L));
+        assertFalse(film.getLikes().contains(20L));
+    }
+
+    @Test
+    void applyPendingLikes_ShouldShowUnflushedLikesOfUser() {
+        filmStorage.addLike(1L, 20L);
+        filmStorage.addLike(2L, 20L);
+        likeWriter = writer(100, Duration.ofHours(1));
+
+        likeWriter.addLike(3L, 20L);
+        likeWriter.removeLike(1L, 20L);
+
+        Set<Long> filmIds = likeWriter.applyPendingLikes(20L, new HashSet<>(filmStorage.findLikedFilmIds(20L)));
+        assertEquals(Set.of(2L, 3L), filmIds);
+    }
+
+    @Test
+    void addLike_ShouldResolveExistingLikesWithoutReadingStorage() throws InterruptedException {
+        filmStorage.addLike(1L, 20L);
+        likeWriter = writer(100, Duration.ofHours(1));
+
+        assertFalse(likeWriter.addLike(1L, 20L));
+        assertTrue(likeWriter.removeLike(1L, 20L));
+        assertTrue(likeWriter.addLike(2L, 20L));
+        assertThrows(NotFoundException.class, () -> likeWriter.addLike(99L, 20L));
+        likeWriter.shutdown();
+
+        // После сброса состояние берётся из обновлённой копии записанных лайков
+        assertFalse(likeWriter.addLike(2L, 20L));
+        assertFalse(likeWriter.removeLike(1L, 20L));
+        // Лайки читаются из хранилища только один раз, при старте
+        assertEquals(1, filmStorage.likeReads);
+    }
+
+    @Test
+    void pendingFilmIds_ShouldListFilmsUntilFlushed() throws InterruptedException {
+        likeWriter = writer(100, Duration.ofHours(1));
+
+        likeWriter.addLike(1L, 10L);
+        likeWriter.addLike(2L, 10L);
+        assertEquals(Set.of(1L, 2L), likeWriter.pendingFilmIds());
+
+        likeWriter.shutdown();
+        assertEquals(Set.of(), likeWriter.pendingFilmIds());
+    }
+
+    @Test
+    void addLike_ShouldRejectWhenQueueStaysFull() throws InterruptedException {
+        filmStorage.blockWrites = true;
+        likeWriter = new WriteBehindLikeWriter(filmStorage, leaderboard, 1, 1, Duration.ofMillis(10), Duration.ofMillis(100));
+
+        likeWriter.addLike(1L, 10L);
+        assertTrue(filmStorage.writing.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ServiceUnavailableException.class, () -> likeWriter.addLike(2L, 10L));
+    }
+
+    private WriteBehindLikeWriter writer(int batchSize, Duration flushInterval) {
+        return new WriteBehindLikeWriter(filmStorage, leaderboard, 1000, batchSize, flushInterval, Duration.ofSeconds(1));
+    }
+
+    // Запоминает пакеты записи и может задержать запись, имитируя медленную базу
+    private static class RecordingFilmStorage extends InMemoryFilmStorage {
+        private final List<List<LikeChange>> batches = new ArrayList<>();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blockWrites;
+        private int likeReads;
+
+        @Override
+        public void forEachLike(LikeConsumer consumer) {
+            likeReads++;
+            super.forEachLike(consumer);
+        }
+
+        @Override
+        public synchronized void applyLikeChanges(Collection<LikeChange> changes) {
+            batches.add(new ArrayList<>(changes));
+            writing.countDown();
+            if (blockWrites) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.applyLikeChanges(changes);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+// Общие данные для бенчмарков: встроенная H2 и in-memory хранилища с одинаковым распределением
+final class BenchmarkData {
+    static final int MAX_LIKES_PER_FILM = 500;
+
+    private BenchmarkData() {
+    }
+
+    // Пул соединений как в приложении, иначе каждый запрос платит за открытие соединения
+    static HikariDataSource createDatabase() {
+        quietLogging();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        return dataSource;
+    }
+
+    // Дополнительный пользователь users + 1 не ставит лайков: от его имени пишут бенчмарки записи
+    static void seed(JdbcTemplate jdbcTemplate, int users, int films, int friends, long seed) {
+        new DatasetGenerator(jdbcTemplate).generate(users, films, friends, MAX_LIKES_PER_FILM, seed);
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                "writer@mail.ru", "writer", "Writer", Date.valueOf(LocalDate.of(1990, 1, 1)));
+    }
+
+    static void seed(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage, int users, int films,
+                     int friends, long seed) {
+        Random random = new Random(seed);
+
+        for (int i = 1; i <= users + 1; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setName("User " + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+        for (int i = 1; i <= films; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            for (int userId : likers(random, users)) {
+                film.addLike((long) userId);
+            }
+            filmStorage.create(film);
+        }
+        for (int i = 1; i < users; i++) {
+            for (Long friendId : friendsOf(random, i, users, friends)) {
+                userStorage.addFriend((long) i, friendId);
+            }
+        }
+    }
+
+    // Степенное распределение, как в DatasetGenerator
+    private static int[] likers(Random random, int users) {
+        int count = Math.min(users, (int) Math.floor(Math.pow(random.nextDouble(), 4) * MAX_LIKES_PER_FILM));
+        int start = random.nextInt(Math.max(users, 1));
+        int[] likers = new int[count];
+        for (int i = 0; i < count; i++) {
+            likers[i] = (start + i) % users + 1;
+        }
+        return likers;
+    }
+
+    // Как и в DatasetGenerator, друзья выбираются среди следующих по id соседей
+    private static List<Long> friendsOf(Random random, int userId, int users, int friends) {
+        int cluster = Math.min(DatasetGenerator.FRIEND_CLUSTER, users - userId);
+        Set<Long> result = new LinkedHashSet<>();
+        while (result.size() < Math.min(friends, cluster)) {
+            result.add((long) userId + random.nextInt(cluster) + 1);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+}
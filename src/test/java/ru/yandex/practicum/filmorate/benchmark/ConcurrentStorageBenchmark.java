@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Пропускная способность in-memory хранилищ при одновременных чтениях и записях.
+ * Число потоков задаётся через -t: -Djmh.args="-t 4"; main прогоняет 1, 2, 4 ... до числа ядер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentStorageBenchmark {
+    @Param({"10000"})
+    private int films;
+
+    @Param({"20000"})
+    private int users;
+
+    @Param({"20"})
+    private int friends;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.seed(filmStorage, userStorage, users, films, friends, 42);
+    }
+
+    @Benchmark
+    public Film findFilm() {
+        return filmStorage.find(randomFilmId());
+    }
+
+    @Benchmark
+    public boolean toggleLike() {
+        long filmId = randomFilmId();
+        long userId = ThreadLocalRandom.current().nextInt(users) + 1;
+        return filmStorage.addLike(filmId, userId) || filmStorage.removeLike(filmId, userId);
+    }
+
+    // Все потоки пишут в один фильм: худший случай для конкурентного множества лайков
+    @Benchmark
+    public boolean toggleLikeOnHotFilm() {
+        long userId = ThreadLocalRandom.current().nextInt(users) + 1;
+        return filmStorage.addLike(1L, userId) || filmStorage.removeLike(1L, userId);
+    }
+
+    @Benchmark
+    public User findUser() {
+        return userStorage.find((long) ThreadLocalRandom.current().nextInt(users) + 1);
+    }
+
+    @Benchmark
+    public boolean toggleFriend() {
+        long userId = ThreadLocalRandom.current().nextInt(users) + 1;
+        long friendId = ThreadLocalRandom.current().nextInt(users) + 1;
+        return userStorage.addFriend(userId, friendId) || userStorage.removeFriend(userId, friendId);
+    }
+
+    @Benchmark
+    public List<Film> findPopular() {
+        return filmStorage.findPopular(10);
+    }
+
+    private long randomFilmId() {
+        return ThreadLocalRandom.current().nextInt(films) + 1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            new Runner(new OptionsBuilder()
+                    .include(ConcurrentStorageBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
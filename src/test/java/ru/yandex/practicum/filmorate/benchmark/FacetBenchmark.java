@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Фильтрация каталога из 100 тысяч и миллиона фильмов: 6 жанров (у фильма 1–3), 5 рейтингов, годы 1900–2024.
+ * Фильмы пишутся прямо в индекс, лайки — в рейтинг популярности, без хранилища.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class FacetBenchmark {
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+
+    @Param({"100000", "1000000"})
+    private int films;
+
+    @Param({"20"})
+    private int limit;
+
+    private FacetIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmStorage);
+        index = new FacetIndex(filmStorage, leaderboard);
+        Random random = new Random(42);
+        for (int i = 1; i <= films; i++) {
+            Film film = new Film();
+            film.setId((long) i);
+            film.setReleaseDate(LocalDate.of(1900 + random.nextInt(125), 1, 1));
+            film.setMpa(new MpaRating(1L + random.nextInt(MPA_RATINGS), null, null));
+            List<Genre> genres = new ArrayList<>();
+            int count = 1 + random.nextInt(3);
+            for (int j = 0; j < count; j++) {
+                genres.add(new Genre(1L + random.nextInt(GENRES), null));
+            }
+            film.setGenres(genres);
+            int likes = (int) (Math.pow(random.nextDouble(), 4) * BenchmarkData.MAX_LIKES_PER_FILM);
+            index.put(film, likes);
+            leaderboard.update((long) i, likes);
+        }
+    }
+
+    // Только счётчики по всему каталогу: верхняя граница стоимости прохода по маскам
+    @Benchmark
+    public FacetIndex.Result noFilters() {
+        return index.filter(null, null, null, null, false, limit);
+    }
+
+    @Benchmark
+    public FacetIndex.Result genreAndMpa() {
+        return index.filter(List.of(2L), List.of(4L), null, null, false, limit);
+    }
+
+    @Benchmark
+    public FacetIndex.Result genreMpaDecade() {
+        return index.filter(List.of(2L), List.of(4L), 1990, 1999, false, limit);
+    }
+
+    @Benchmark
+    public FacetIndex.Result genreMpaDecadePopular() {
+        return index.filter(List.of(2L), List.of(4L), 1990, 1999, true, limit);
+    }
+
+    // Около сотни совпадений: кандидаты сортируются сами, без обхода рейтинга
+    @Benchmark
+    public FacetIndex.Result narrowPopular() {
+        return index.filter(List.of(1L, 3L), List.of(5L), 2001, 2001, true, limit);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FacetBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Чтение и гидратация фильмов из H2, а также запись лайка
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmDbStorageBenchmark {
+    @Param({"1000", "10000"})
+    private int films;
+
+    @Param({"2000"})
+    private int users;
+
+    @Param({"10"})
+    private int count;
+
+    private HikariDataSource database;
+    private FilmDbStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkData.createDatabase();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        BenchmarkData.seed(jdbcTemplate, users, films, 20, 42);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.refresh();
+        filmStorage = new FilmDbStorage(jdbcTemplate, referenceDataCache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Film find() {
+        return filmStorage.find(randomFilmId());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    @Benchmark
+    public List<Film> findPopular() {
+        return filmStorage.findPopular(count);
+    }
+
+    // Пара лайк/снятие лайка оставляет данные неизменными между итерациями
+    @Benchmark
+    public boolean addAndRemoveLike() {
+        long filmId = randomFilmId();
+        boolean added = filmStorage.addLike(filmId, (long) users + 1);
+        return filmStorage.removeLike(filmId, (long) users + 1) && added;
+    }
+
+    private long randomFilmId() {
+        return ThreadLocalRandom.current().nextInt(films) + 1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmDbStorageBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
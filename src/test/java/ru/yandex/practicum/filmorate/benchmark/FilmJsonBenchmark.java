@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Тело GET /films/{id} и /films/popular: сериализация Jackson на каждый запрос против готовых байтов.
+ * У горячих фильмов сотни лайков, поэтому большая часть JSON — массив id пользователей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmJsonBenchmark {
+    @Param({"10", "100"})
+    private int count;
+
+    @Param({"500"})
+    private int likesPerFilm;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<Long, Film> films = new HashMap<>();
+    private List<Long> ids;
+    private EntityVersions versions;
+    private FilmJsonCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Film film = new Film();
+            film.setId(id);
+            film.setName("Фильм " + id);
+            film.setDescription("Описание фильма " + id);
+            film.setReleaseDate(LocalDate.of(1990 + random.nextInt(30), 1, 1));
+            film.setDuration(90 + random.nextInt(60));
+            film.setMpa(new MpaRating(1L, "G", "General Audiences"));
+            film.setGenres(List.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")));
+            for (int i = 0; i < likesPerFilm; i++) {
+                film.getLikes().add(1L + random.nextInt(100_000));
+            }
+            films.put(id, film);
+            ids.add(id);
+        }
+        versions = new EntityVersions();
+        cache = new FilmJsonCache(objectMapper, versions, 1000, 1024);
+        cache.getArray(ids, this::load);
+    }
+
+    @Benchmark
+    public byte[] filmJackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(films.get(1L));
+    }
+
+    // С проверкой версии, как в контроллере
+    @Benchmark
+    public byte[] filmCached() {
+        return cache.get(1L, versions.filmTag(1L), films::get).json();
+    }
+
+    @Benchmark
+    public byte[] popularJackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(load(ids));
+    }
+
+    @Benchmark
+    public byte[] popularCached() {
+        return cache.getArray(ids, this::load);
+    }
+
+    private List<Film> load(List<Long> filmIds) {
+        return filmIds.stream().map(films::get).toList();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmJsonBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
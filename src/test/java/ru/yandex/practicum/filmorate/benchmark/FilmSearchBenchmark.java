@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Поиск по каталогу из миллиона фильмов. Слова выбираются по закону Ципфа: самое частое слово
+ * встречается в сотнях тысяч фильмов, редкие — в единицах. Фильмы пишутся прямо в индекс, без хранилища.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class FilmSearchBenchmark {
+    @Param({"1000000"})
+    private int films;
+
+    @Param({"50000"})
+    private int vocabulary;
+
+    @Param({"10"})
+    private int limit;
+
+    private FilmSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new FilmSearchIndex(new InMemoryFilmStorage(), 10000);
+        Random random = new Random(42);
+        for (int i = 1; i <= films; i++) {
+            Film film = new Film();
+            film.setId((long) i);
+            film.setName(words(random, 2 + random.nextInt(3)));
+            film.setDescription(words(random, 10 + random.nextInt(16)));
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            index.add(film);
+            index.updateLikes((long) i, (int) (Math.pow(random.nextDouble(), 4) * BenchmarkData.MAX_LIKES_PER_FILM));
+        }
+    }
+
+    // w0 есть примерно в 70% фильмов, w1 — в 55%, w2 — в 40%, w100 — в 2%, w20000 — примерно в сотне
+    @Benchmark
+    public List<Long> commonWord() {
+        return index.search("w0", limit);
+    }
+
+    @Benchmark
+    public List<Long> rareWord() {
+        return index.search("w20000", limit);
+    }
+
+    @Benchmark
+    public List<Long> commonAndMediumWords() {
+        return index.search("w0 w100", limit);
+    }
+
+    @Benchmark
+    public List<Long> threeCommonWords() {
+        return index.search("w0 w1 w2", limit);
+    }
+
+    // Индекс слова распределён как 1 / (k + 1): частота обратно пропорциональна рангу
+    private String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int rank = (int) Math.pow(vocabulary + 1, random.nextDouble()) - 1;
+            text.append(" w").append(rank);
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
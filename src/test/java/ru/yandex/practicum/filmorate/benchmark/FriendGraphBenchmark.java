@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Подсказки друзей из графа в памяти: обычный пользователь и пользователь с тысячами друзей
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendGraphBenchmark {
+    @Param({"100000"})
+    private int users;
+
+    @Param({"50"})
+    private int friends;
+
+    @Param({"5000"})
+    private int influencerFriends;
+
+    @Param({"10"})
+    private int limit;
+
+    @Param({"50000"})
+    private int maxScannedEdges;
+
+    private FriendGraph friendGraph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.seed(new InMemoryFilmStorage(), userStorage, users, 0, friends, 42);
+        // Пользователь 1 дружит с каждым users / influencerFriends пользователем
+        int step = Math.max(1, users / influencerFriends);
+        for (long friendId = 2; friendId <= users; friendId += step) {
+            userStorage.addFriend(1L, friendId);
+        }
+        friendGraph = new FriendGraph(userStorage, maxScannedEdges, 10000);
+        friendGraph.reload();
+    }
+
+    @Benchmark
+    public List<FriendGraph.Suggestion> suggestForRegularUser() {
+        return friendGraph.suggest((long) ThreadLocalRandom.current().nextInt(2, users), limit);
+    }
+
+    @Benchmark
+    public List<FriendGraph.Suggestion> suggestForInfluencer() {
+        return friendGraph.suggest(1L, limit);
+    }
+
+    // Изменение списка друзей с периодическим переносом overlay в CSR
+    @Benchmark
+    public void addAndRemoveFriend() {
+        long userId = ThreadLocalRandom.current().nextInt(2, users);
+        friendGraph.addFriend(userId, 1L);
+        friendGraph.removeFriend(userId, 1L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FriendGraphBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.IdSet;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/*
+ * Сравнение занимаемой кучи: лайки фильмов в HashSet<Long> и в IdSet на одном и том же наборе данных.
+ * Это не JMH-бенчмарк, а разовый замер после сборки мусора, поэтому запускается через профиль load-test:
+ * mvn -Pload-test -DskipTests verify -Dload.main=ru.yandex.practicum.filmorate.benchmark.IdSetFootprint
+ *     -Dload.args="--films 2000 --max-likes 20000"
+ */
+public class IdSetFootprint {
+    public static void main(String[] args) {
+        int films = 2000;
+        int maxLikes = 20000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--films" -> films = Integer.parseInt(args[i + 1]);
+                case "--max-likes" -> maxLikes = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        int[][] likes = likes(films, maxLikes);
+        long entries = 0;
+        for (int[] filmLikes : likes) {
+            entries += filmLikes.length;
+        }
+        System.out.printf("films=%d likes=%d%n", films, entries);
+
+        report("HashSet<Long>", entries, measure(() -> fill(likes, HashSet::new)));
+        report("IdSet", entries, measure(() -> fill(likes, IdSet::new)));
+    }
+
+    // Степенное распределение, как в DatasetGenerator; id лайкнувших идут подряд со случайного места
+    private static int[][] likes(int films, int maxLikes) {
+        Random random = new Random(42);
+        int users = maxLikes * 5;
+        int[][] likes = new int[films][];
+        for (int i = 0; i < films; i++) {
+            int count = (int) Math.floor(Math.pow(random.nextDouble(), 4) * maxLikes);
+            int start = random.nextInt(users);
+            likes[i] = new int[count];
+            for (int j = 0; j < count; j++) {
+                likes[i][j] = (start + j) % users + 1;
+            }
+        }
+        return likes;
+    }
+
+    // Id больше 127 не кэшируются, так что Long создаётся на каждое значение, как при чтении из ResultSet
+    private static List<Set<Long>> fill(int[][] likes, Supplier<Set<Long>> factory) {
+        List<Set<Long>> sets = new ArrayList<>(likes.length);
+        for (int[] filmLikes : likes) {
+            Set<Long> set = factory.get();
+            for (int userId : filmLikes) {
+                set.add(Long.valueOf(userId));
+            }
+            sets.add(set);
+        }
+        return sets;
+    }
+
+    private static long measure(Supplier<List<Set<Long>>> builder) {
+        long before = usedHeap();
+        List<Set<Long>> sets = builder.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(sets);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void report(String name, long entries, long bytes) {
+        System.out.printf("%-14s %8.1f MB %6.1f bytes/like%n", name, bytes / 1048576.0,
+                entries == 0 ? 0.0 : (double) bytes / entries);
+    }
+}
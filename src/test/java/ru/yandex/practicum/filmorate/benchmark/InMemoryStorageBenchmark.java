@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Те же операции на in-memory хранилищах, чтобы отделить стоимость БД от стоимости кода
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryStorageBenchmark {
+    @Param({"10000"})
+    private int films;
+
+    @Param({"20000"})
+    private int users;
+
+    @Param({"50"})
+    private int friends;
+
+    @Param({"10"})
+    private int count;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.seed(filmStorage, userStorage, users, films, friends, 42);
+        FriendGraph friendGraph = new FriendGraph(userStorage, 50000, 10000);
+        friendGraph.reload();
+        userService = new UserService(userStorage, friendGraph, new TypeaheadIndex(filmStorage, userStorage, 10000),
+                new EntityVersions());
+    }
+
+    @Benchmark
+    public Film findFilm() {
+        return filmStorage.find(randomFilmId());
+    }
+
+    @Benchmark
+    public List<Film> findAllFilms() {
+        return filmStorage.findAll();
+    }
+
+    @Benchmark
+    public List<Film> findPopular() {
+        return filmStorage.findPopular(count);
+    }
+
+    @Benchmark
+    public boolean addAndRemoveLike() {
+        long filmId = randomFilmId();
+        boolean added = filmStorage.addLike(filmId, (long) users + 1);
+        return filmStorage.removeLike(filmId, (long) users + 1) && added;
+    }
+
+    @Benchmark
+    public User findUser() {
+        return userStorage.find((long) ThreadLocalRandom.current().nextInt(users) + 1);
+    }
+
+    @Benchmark
+    public List<User> getMutualFriends() {
+        long userId = ThreadLocalRandom.current().nextInt(users - 1) + 1;
+        return userService.getMutualFriends(userId, userId + 1);
+    }
+
+    private long randomFilmId() {
+        return ThreadLocalRandom.current().nextInt(films) + 1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InMemoryStorageBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
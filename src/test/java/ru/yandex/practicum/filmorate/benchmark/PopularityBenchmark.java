@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Сравнение инкрементального рейтинга с сортировкой всего каталога на каждый запрос
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopularityBenchmark {
+    @Param({"1000", "10000", "50000"})
+    private int films;
+
+    @Param({"10"})
+    private int count;
+
+    private InMemoryFilmStorage filmStorage;
+    private PopularityLeaderboard leaderboard;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new Random(42);
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            // Степенное распределение: большинство фильмов почти без лайков
+            int likes = (int) Math.floor(Math.pow(random.nextDouble(), 4) * 500);
+            for (long userId = 0; userId < likes; userId++) {
+                film.addLike(userId);
+            }
+            filmStorage.create(film);
+        }
+        leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.reload();
+    }
+
+    @Benchmark
+    public List<Film> sortEverything() {
+        return filmStorage.findAll().stream()
+                .sorted(Comparator.comparingInt(f -> -f.getLikes().size()))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Film> leaderboardTop() {
+        return filmStorage.findByIds(leaderboard.getTop(count));
+    }
+
+    @Benchmark
+    public List<Long> leaderboardLikeAndTop() {
+        leaderboard.increment((long) random.nextInt(films) + 1, 1);
+        return leaderboard.getTop(count);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PopularityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации по совместным лайкам на степенном распределении лайков: сборка индекса, выдача и обновление
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendationBenchmark {
+    @Param({"100000"})
+    private int users;
+
+    @Param({"20000"})
+    private int films;
+
+    @Param({"5000"})
+    private int heavyUserLikes;
+
+    @Param({"100"})
+    private int neighboursPerFilm;
+
+    @Param({"50"})
+    private int userWindow;
+
+    @Param({"10"})
+    private int limit;
+
+    private CoLikeIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        BenchmarkData.seed(filmStorage, new InMemoryUserStorage(), users, films, 0, 42);
+        // Пользователь 1 лайкает каждый films / heavyUserLikes фильм
+        int step = Math.max(1, films / heavyUserLikes);
+        for (long filmId = 1; filmId <= films; filmId += step) {
+            filmStorage.addLike(filmId, 1L);
+        }
+        index = new CoLikeIndex(filmStorage, neighboursPerFilm, userWindow);
+        index.reload();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CoLikeIndex reload() {
+        index.reload();
+        return index;
+    }
+
+    @Benchmark
+    public List<CoLikeIndex.Recommendation> recommendForRegularUser() {
+        return index.recommend((long) ThreadLocalRandom.current().nextInt(2, users), limit);
+    }
+
+    @Benchmark
+    public List<CoLikeIndex.Recommendation> recommendForHeavyUser() {
+        return index.recommend(1L, limit);
+    }
+
+    // Лайк и его отмена: обновление пар в пределах окна пользователя
+    @Benchmark
+    public void addAndRemoveLikeForRegularUser() {
+        long filmId = ThreadLocalRandom.current().nextInt(1, films + 1);
+        long userId = ThreadLocalRandom.current().nextInt(2, users);
+        index.addLike(filmId, userId);
+        index.removeLike(filmId, userId);
+    }
+
+    @Benchmark
+    public void addAndRemoveLikeForHeavyUser() {
+        long filmId = films + 1;
+        index.addLike(filmId, 1L);
+        index.removeLike(filmId, 1L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecommendationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
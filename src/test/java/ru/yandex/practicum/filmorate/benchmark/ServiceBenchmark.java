@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.EntityVersions;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.FacetIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectLikeWriter;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Сервисный слой поверх H2: популярные фильмы, общие друзья и лайк
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final int BATCH = 20;
+
+    @Param({"10000"})
+    private int films;
+
+    @Param({"2000", "20000"})
+    private int users;
+
+    @Param({"50"})
+    private int friends;
+
+    @Param({"10"})
+    private int count;
+
+    private HikariDataSource database;
+    private FilmService filmService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkData.createDatabase();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        BenchmarkData.seed(jdbcTemplate, users, films, friends, 42);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.refresh();
+
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, referenceDataCache);
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.reload();
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        FriendGraph friendGraph = new FriendGraph(userStorage, 50000, 10000);
+        friendGraph.reload();
+        TypeaheadIndex typeahead = new TypeaheadIndex(filmStorage, userStorage, 10000);
+        EntityVersions versions = new EntityVersions();
+        userService = new UserService(userStorage, friendGraph, typeahead, versions);
+        FilmCache filmCache = new FilmCache(versions, 1000, Duration.ofMinutes(10));
+        FilmJsonCache filmJsonCache = new FilmJsonCache(new ObjectMapper().findAndRegisterModules(), versions, 500, 1024);
+        filmService = new FilmService(filmStorage, userService,
+                new GenreService(referenceDataCache, versions, filmCache, filmJsonCache),
+                new MpaService(referenceDataCache, versions, filmCache, filmJsonCache), leaderboard, filmCache,
+                new DirectLikeWriter(filmStorage), new CoLikeIndex(filmStorage, 100, 50),
+                new FilmSearchIndex(filmStorage, 10000), typeahead, new FacetIndex(filmStorage, leaderboard),
+                versions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmService.getPopularFilms(count);
+    }
+
+    // Соседи по id попадают в один кластер и имеют общих друзей
+    @Benchmark
+    public List<User> getMutualFriends() {
+        long userId = ThreadLocalRandom.current().nextInt(users - 1) + 1;
+        return userService.getMutualFriends(userId, userId + 1);
+    }
+
+    // Один пользователь против двадцати соседей за один вызов
+    @Benchmark
+    public Map<Long, List<User>> getMutualFriendsBatch() {
+        long userId = ThreadLocalRandom.current().nextInt(users - BATCH) + 1;
+        return userService.getMutualFriends(userId, LongStream.rangeClosed(userId + 1, userId + BATCH)
+                .boxed()
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public List<FriendSuggestion> getFriendSuggestions() {
+        return userService.getFriendSuggestions((long) ThreadLocalRandom.current().nextInt(users) + 1, count);
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        long filmId = ThreadLocalRandom.current().nextInt(films) + 1;
+        filmService.addLike(filmId, (long) users + 1);
+        filmService.deleteLike(filmId, (long) users + 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
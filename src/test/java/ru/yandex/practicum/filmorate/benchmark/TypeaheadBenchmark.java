@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.index.TypeaheadIndex;
+import ru.yandex.practicum.filmorate.model.Completion;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Подсказки при вводе на 200 тысячах фильмов и 200 тысячах пользователей.
+ * Названия — 2–4 слова из словаря по закону Ципфа, слова и логины собраны из слогов,
+ * поэтому префикс из одной буквы покрывает около 7% ключей, из трёх — доли процента.
+ * После загрузки часть фильмов переименована и лежит в overlay, как между пересборками.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeaheadBenchmark {
+    private static final String CONSONANTS = "bdfgklmnprstvz";
+    private static final String VOWELS = "aeiou";
+
+    @Param({"200000"})
+    private int films;
+
+    @Param({"200000"})
+    private int users;
+
+    @Param({"5000"})
+    private int renamedFilms;
+
+    @Param({"10"})
+    private int limit;
+
+    private TypeaheadIndex index;
+    private String rareWord;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            vocabulary.add(syllables(random, 2 + random.nextInt(3)));
+        }
+        rareWord = vocabulary.get(15000);
+
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName(title(random, vocabulary));
+            film.setDescription("");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            filmStorage.create(film);
+        }
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setLogin(syllables(random, 2 + random.nextInt(3)) + random.nextInt(1000));
+            user.setEmail("user" + i + "@mail.ru");
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+
+        index = new TypeaheadIndex(filmStorage, userStorage, 10000);
+        index.reload();
+        for (long id = 1; id <= films; id++) {
+            index.updateFilmLikes(id, (int) (Math.pow(random.nextDouble(), 4) * BenchmarkData.MAX_LIKES_PER_FILM));
+        }
+        for (long id = 1; id <= users; id++) {
+            index.updateUserFriends(id, (int) (Math.pow(random.nextDouble(), 4) * 200));
+        }
+        for (int i = 0; i < renamedFilms; i++) {
+            index.putFilm(1L + random.nextInt(films), title(random, vocabulary), random.nextInt(100));
+        }
+    }
+
+    @Benchmark
+    public List<Completion> filmsOneLetter() {
+        return index.completeFilms("k", limit);
+    }
+
+    @Benchmark
+    public List<Completion> filmsThreeLetters() {
+        return index.completeFilms("kan", limit);
+    }
+
+    @Benchmark
+    public List<Completion> filmsRareWord() {
+        return index.completeFilms(rareWord, limit);
+    }
+
+    @Benchmark
+    public List<Completion> usersOneLetter() {
+        return index.completeUsers("k", limit);
+    }
+
+    @Benchmark
+    public List<Completion> usersThreeLetters() {
+        return index.completeUsers("kan", limit);
+    }
+
+    private static String title(Random random, List<String> vocabulary) {
+        StringBuilder title = new StringBuilder();
+        int words = 2 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            int rank = (int) Math.pow(vocabulary.size() + 1, random.nextDouble()) - 1;
+            String word = vocabulary.get(rank);
+            title.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+        }
+        return title.toString();
+    }
+
+    private static String syllables(Random random, int count) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            word.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())))
+                    .append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+        }
+        return word.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TypeaheadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
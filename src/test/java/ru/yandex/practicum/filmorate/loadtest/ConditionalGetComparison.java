@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Опрос одних и тех же ресурсов без ETag и с If-None-Match: клиент запоминает тег каждого URL.
+ * Опрашиваются горячие фильмы, /genres и /mpa, параллельно идёт небольшой поток лайков, который меняет версии.
+ * Оба режима гоняются на одном приложении после общего прогрева.
+ *
+ * mvn -Pload-test -DskipTests verify -Dload.main=ru.yandex.practicum.filmorate.loadtest.ConditionalGetComparison \
+ *     -Dload.args="--rps 400 --duration 30 --hot-films 200 --likes-per-second 5"
+ */
+public class ConditionalGetComparison {
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        int users = Integer.parseInt(options.getOrDefault("users", "20000"));
+        int films = Integer.parseInt(options.getOrDefault("films", "5000"));
+        int rps = Integer.parseInt(options.getOrDefault("rps", "400"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+        int hotFilms = Integer.parseInt(options.getOrDefault("hot-films", "200"));
+        int likesPerSecond = Integer.parseInt(options.getOrDefault("likes-per-second", "5"));
+
+        try (ConfigurableApplicationContext context = start(users, films)) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            Poller poller = new Poller(baseUrl, users, hotFilms, rps, likesPerSecond);
+            poller.run(false, warmup, 1);
+            poller.run(true, warmup, 2);
+            System.out.printf("%-12s %8s %8s %8s %12s %10s %9s %9s %12s%n", "mode", "count", "200", "304",
+                    "bytes", "bytes/req", "p50 ms", "p99 ms", "cpu us/req");
+            poller.run(false, duration, 42).print("plain");
+            poller.run(true, duration, 42).print("conditional");
+        }
+    }
+
+    private static ConfigurableApplicationContext start(int users, int films) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .run("--spring.profiles.active=db",
+                        "--server.port=0",
+                        "--management.server.port=-1",
+                        "--spring.datasource.url=jdbc:h2:mem:conditional-get;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                        "--filmorate.dataset.generate=true",
+                        "--filmorate.dataset.users=" + users,
+                        "--filmorate.dataset.films=" + films,
+                        "--filmorate.dataset.max-likes-per-film=200");
+    }
+
+    private record Poller(String baseUrl, int users, int hotFilms, int rps, int likesPerSecond) {
+
+        Result run(boolean conditional, int durationSeconds, long seed) {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            Map<String, String> etags = new ConcurrentHashMap<>();
+            Result result = new Result();
+            Random random = new Random(seed);
+            long total = (long) rps * durationSeconds;
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+            int likeEvery = likesPerSecond > 0 ? Math.max(1, rps / likesPerSecond) : Integer.MAX_VALUE;
+
+            // Время процессора всего процесса, то есть вместе с клиентом: разница режимов всё равно видна
+            long cpuStart = processCpuNanos();
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (long i = 0; i < total; i++) {
+                    long intended = start + i * intervalNanos;
+                    long delay = intended - System.nanoTime();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+                    if (i % likeEvery == likeEvery - 1) {
+                        String like = "/films/" + (random.nextInt(hotFilms) + 1) + "/like/" + (random.nextInt(users) + 1);
+                        executor.execute(() -> send(client, HttpRequest.newBuilder(URI.create(baseUrl + like))
+                                .PUT(HttpRequest.BodyPublishers.noBody()).build()));
+                        continue;
+                    }
+                    int pick = random.nextInt(10);
+                    String path = pick == 0 ? "/genres" : pick == 1 ? "/mpa" : "/films/" + (random.nextInt(hotFilms) + 1);
+                    executor.execute(() -> poll(client, path, conditional, etags, result, intended));
+                }
+            }
+            result.cpuNanos = processCpuNanos() - cpuStart;
+            return result;
+        }
+
+        private void poll(HttpClient client, String path, boolean conditional, Map<String, String> etags,
+                          Result result, long intended) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30));
+            String etag = conditional ? etags.get(path) : null;
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            try {
+                HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                if (conditional) {
+                    response.headers().firstValue("ETag").ifPresent(value -> etags.put(path, value));
+                }
+                result.record(response.statusCode(), response.body().length, System.nanoTime() - intended);
+            } catch (Exception e) {
+                result.record(-1, 0, System.nanoTime() - intended);
+            }
+        }
+
+        private static void send(HttpClient client, HttpRequest request) {
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (Exception ignored) {
+                // Лайки только двигают версии, их ответы не считаются
+            }
+        }
+
+        private static long processCpuNanos() {
+            return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                    .getProcessCpuTime();
+        }
+    }
+
+    private static class Result {
+        private final LatencyRecorder latencies = new LatencyRecorder();
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong notModified = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private long cpuNanos;
+
+        void record(int status, int bodyBytes, long nanos) {
+            if (status == 200) {
+                ok.incrementAndGet();
+            } else if (status == 304) {
+                notModified.incrementAndGet();
+            }
+            bytes.addAndGet(bodyBytes);
+            latencies.record(nanos, status == 200 || status == 304);
+        }
+
+        void print(String mode) {
+            long[] sorted = latencies.sorted();
+            System.out.printf("%-12s %8d %8d %8d %12d %10.1f %9.2f %9.2f %12.1f%n", mode, sorted.length, ok.get(),
+                    notModified.get(), bytes.get(), (double) bytes.get() / Math.max(1, sorted.length),
+                    LatencyRecorder.percentileMillis(sorted, 50), LatencyRecorder.percentileMillis(sorted, 99),
+                    cpuNanos / 1000.0 / Math.max(1, sorted.length));
+        }
+    }
+}
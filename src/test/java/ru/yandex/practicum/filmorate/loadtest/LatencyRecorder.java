@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.Arrays;
+
+// Накапливает задержки одной операции, перцентили считаются по отсортированной копии
+class LatencyRecorder {
+    private long[] latencies = new long[1024];
+    private int size;
+    private int errors;
+
+    synchronized void record(long nanos, boolean success) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = nanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    void addAll(LatencyRecorder other) {
+        long[] values;
+        int otherErrors;
+        synchronized (other) {
+            values = Arrays.copyOf(other.latencies, other.size);
+            otherErrors = other.errors;
+        }
+        synchronized (this) {
+            for (long value : values) {
+                record(value, true);
+            }
+            errors += otherErrors;
+        }
+    }
+
+    synchronized int errors() {
+        return errors;
+    }
+
+    synchronized long[] sorted() {
+        long[] copy = Arrays.copyOf(latencies, size);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
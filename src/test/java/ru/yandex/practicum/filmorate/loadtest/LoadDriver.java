@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+ * Нагрузочный драйвер для локального экземпляра приложения.
+ * Запросы отправляются по расписанию с заданным RPS (открытая модель нагрузки), а задержка считается
+ * от запланированного момента отправки, чтобы очередь на стороне клиента тоже попадала в перцентили.
+ *
+ * mvn -Pload-test -DskipTests verify -Dload.args="--rps 300 --duration 60 --mix popular=40,film=30,like=10"
+ */
+public class LoadDriver {
+    private static final Map<String, Function<Target, HttpRequest.Builder>> OPERATIONS = new LinkedHashMap<>();
+
+    static {
+        OPERATIONS.put("popular", t -> get(t, "/films/popular?count=10"));
+        OPERATIONS.put("film", t -> get(t, "/films/" + t.film()));
+        OPERATIONS.put("films-page", t -> get(t, "/films?limit=100"));
+        OPERATIONS.put("user", t -> get(t, "/users/" + t.user()));
+        OPERATIONS.put("friends", t -> get(t, "/users/" + t.user() + "/friends"));
+        OPERATIONS.put("common-friends", t -> {
+            long user = t.user();
+            return get(t, "/users/" + user + "/friends/common/" + (user % t.users + 1));
+        });
+        OPERATIONS.put("like", t -> request(t, "/films/" + t.film() + "/like/" + t.user())
+                .PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    static final String DEFAULT_MIX = "popular=30,film=30,films-page=5,user=10,friends=10,common-friends=10,like=5";
+
+    public static void main(String[] args) {
+        Map<String, String> options = parse(args);
+        run(options.getOrDefault("base-url", "http://localhost:8080"),
+                Integer.parseInt(options.getOrDefault("users", "100000")),
+                Integer.parseInt(options.getOrDefault("films", "20000")),
+                Integer.parseInt(options.getOrDefault("rps", "200")),
+                Integer.parseInt(options.getOrDefault("duration", "30")),
+                parseMix(options.getOrDefault("mix", DEFAULT_MIX)),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+    }
+
+    static void run(String baseUrl, int users, int films, int rps, int durationSeconds, Map<String, Integer> mix,
+                    long seed) {
+        String[] schedule = weightedSchedule(mix, new Random(seed));
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        mix.keySet().forEach(name -> recorders.put(name, new LatencyRecorder()));
+        Target target = new Target(baseUrl, users, films);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+        long total = (long) rps * durationSeconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        System.out.printf("Target: %s, %d RPS, %d s, %d requests%n", baseUrl, rps, durationSeconds, total);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long intended = start + i * intervalNanos;
+                long delay = intended - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                String operation = schedule[(int) (i % schedule.length)];
+                executor.execute(() -> send(client, OPERATIONS.get(operation).apply(target).build(),
+                        recorders.get(operation), intended));
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        report(recorders, elapsed);
+    }
+
+    private static void send(HttpClient client, HttpRequest request, LatencyRecorder recorder, long intended) {
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() < 500;
+        } catch (Exception e) {
+            success = false;
+        }
+        recorder.record(System.nanoTime() - intended, success);
+    }
+
+    private static void report(Map<String, LatencyRecorder> recorders, double elapsedSeconds) {
+        System.out.printf("%-16s %8s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "rps", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        LatencyRecorder all = new LatencyRecorder();
+        recorders.forEach((name, recorder) -> {
+            print(name, recorder.sorted(), recorder.errors(), elapsedSeconds);
+            all.addAll(recorder);
+        });
+        print("total", all.sorted(), all.errors(), elapsedSeconds);
+    }
+
+    private static void print(String name, long[] sorted, int errors, double elapsedSeconds) {
+        System.out.printf("%-16s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", name, sorted.length, errors,
+                sorted.length / elapsedSeconds,
+                LatencyRecorder.percentileMillis(sorted, 50),
+                LatencyRecorder.percentileMillis(sorted, 99),
+                LatencyRecorder.percentileMillis(sorted, 99.9),
+                LatencyRecorder.percentileMillis(sorted, 100));
+    }
+
+    // Перемешанная последовательность операций, в которой каждая встречается пропорционально весу
+    private static String[] weightedSchedule(Map<String, Integer> mix, Random random) {
+        String[] schedule = mix.entrySet().stream()
+                .flatMap(e -> Stream.generate(e::getKey).limit(e.getValue()))
+                .toArray(String[]::new);
+        for (int i = schedule.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = schedule[i];
+            schedule[i] = schedule[j];
+            schedule[j] = tmp;
+        }
+        return schedule;
+    }
+
+    static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.split("=");
+            if (!OPERATIONS.containsKey(pair[0])) {
+                throw new IllegalArgumentException("Unknown operation: " + pair[0] + ", available: " +
+                        OPERATIONS.keySet());
+            }
+            mix.put(pair[0], Integer.parseInt(pair[1]));
+        }
+        return mix;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static HttpRequest.Builder get(Target target, String path) {
+        return request(target, path).GET();
+    }
+
+    private static HttpRequest.Builder request(Target target, String path) {
+        return HttpRequest.newBuilder(URI.create(target.baseUrl + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private record Target(String baseUrl, int users, int films) {
+        long user() {
+            return ThreadLocalRandom.current().nextInt(users) + 1;
+        }
+
+        long film() {
+            return ThreadLocalRandom.current().nextInt(films) + 1;
+        }
+    }
+}
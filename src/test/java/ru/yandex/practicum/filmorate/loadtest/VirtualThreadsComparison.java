@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Сравнение обработки запросов на потоках Tomcat и на виртуальных потоках при одинаковой нагрузке.
+ * Каждый режим поднимает своё приложение со своей H2 и одинаковым синтетическим набором данных.
+ *
+ * mvn -Pload-test -DskipTests verify -Dload.main=ru.yandex.practicum.filmorate.loadtest.VirtualThreadsComparison \
+ *     -Dload.args="--rps 400 --duration 30 --modes platform,virtual"
+ */
+public class VirtualThreadsComparison {
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        int users = Integer.parseInt(options.getOrDefault("users", "20000"));
+        int films = Integer.parseInt(options.getOrDefault("films", "5000"));
+        int rps = Integer.parseInt(options.getOrDefault("rps", "400"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+        Map<String, Integer> mix = LoadDriver.parseMix(options.getOrDefault("mix", LoadDriver.DEFAULT_MIX));
+
+        // Для честного сравнения режимы лучше запускать по одному в отдельных JVM: --modes virtual
+        for (String mode : options.getOrDefault("modes", "platform,virtual").split(",")) {
+            String profile = mode.equals("virtual") ? "db,virtual" : "db";
+            System.out.println();
+            System.out.println("=== " + mode + " threads ===");
+            try (ConfigurableApplicationContext context = start(profile, users, films)) {
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                // Прогрев на той же нагрузке, чтобы JIT и заполнение кэшей не попадали в замер
+                LoadDriver.run(baseUrl, users, films, rps, warmup, mix, 1);
+                LoadDriver.run(baseUrl, users, films, rps, duration, mix, 42);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String profiles, int users, int films) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                // Аргументы командной строки, а не properties(): те уступают application.properties
+                .run("--spring.profiles.active=" + profiles,
+                        "--server.port=0",
+                        "--management.server.port=-1",
+                        "--spring.datasource.url=jdbc:h2:mem:comparison-" + profiles.replace(',', '-') +
+                                ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                        "--filmorate.dataset.generate=true",
+                        "--filmorate.dataset.users=" + users,
+                        "--filmorate.dataset.films=" + films,
+                        "--filmorate.dataset.max-likes-per-film=200");
+    }
+}
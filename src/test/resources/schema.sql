@@ -32,9 +32,12 @@ CREATE TABLE IF NOT EXISTS films (
     description VARCHAR(200),
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL,
-    mpa_id BIGINT REFERENCES mpa_ratings (mpa_id)
+    mpa_id BIGINT REFERENCES mpa_ratings (mpa_id),
+    likes_count INTEGER DEFAULT 0 NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films (likes_count DESC, film_id);
+
 CREATE TABLE IF NOT EXISTS film_genres (
     film_id BIGINT NOT NULL REFERENCES films (film_id) ON DELETE CASCADE,
     genre_id BIGINT NOT NULL REFERENCES genres (genre_id) ON DELETE CASCADE,